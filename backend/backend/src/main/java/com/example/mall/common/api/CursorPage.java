@@ -0,0 +1,27 @@
+package com.example.mall.common.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标(keyset)分页结果
+ * @param <T> 数据类型
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> records;
+    /**
+     * 下一页游标, 没有更多数据时为 null
+     */
+    private String nextCursor;
+    private boolean hasMore;
+    /**
+     * 总条数, 仅在请求 withTotal=true 时返回
+     */
+    private Long total;
+}
@@ -42,6 +42,10 @@ public class R<T> {
         return new R<>(ResultCode.FAILED.getCode(), message, null);
     }
 
+    public static <T> R<T> failed(String message, T data) {
+        return new R<>(ResultCode.FAILED.getCode(), message, data);
+    }
+
     public static <T> R<T> failed() {
         return failed(ResultCode.FAILED);
     }
@@ -4,7 +4,7 @@ import com.example.mall.common.api.ResultCode;
 import com.example.mall.common.exception.CustomException;
 import com.example.mall.common.util.JwtUtil;
 import com.example.mall.common.util.UserContext;
-import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 // 修正: 导入 jakarta.servlet 包
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -31,15 +31,14 @@ public class AuthenticationInterceptor implements HandlerInterceptor {
 
         String token = authHeader.substring(7);
         try {
-            Claims claims = jwtUtil.getClaimsFromToken(token);
-            if (jwtUtil.isTokenExpired(claims)) {
-                log.warn("【认证失败】Token已过期, Token: {}", token);
-                throw new CustomException(ResultCode.UNAUTHORIZED);
-            }
-            Long userId = claims.get("userId", Long.class);
+            // 已校验过的 Token 直接从缓存取 userId
+            Long userId = jwtUtil.getUserIdFromToken(token);
             UserContext.setCurrentUserId(userId);
             log.info("【认证成功】用户ID: {}, URI: {}", userId, request.getRequestURI());
             return true;
+        } catch (ExpiredJwtException e) {
+            log.warn("【认证失败】Token已过期, Token: {}", token);
+            throw new CustomException(ResultCode.UNAUTHORIZED);
         } catch (Exception e) {
             log.error("【认证异常】Token解析失败, Token: {}, 错误: {}", token, e.getMessage());
             throw new CustomException(ResultCode.UNAUTHORIZED);
@@ -2,24 +2,68 @@ package com.example.mall.common.config;
 
 import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.DynamicTableNameInnerInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.example.mall.common.util.ArchiveContext;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+
 /**
  * MyBatis-Plus 配置
  */
 @Configuration
 public class MyBatisPlusConfig {
 
+    /**
+     * 有归档表的热表, 归档表名为 表名 + "_archive"
+     */
+    private static final Set<String> ARCHIVED_TABLES = Set.of("orders", "order_items");
+
     /**
      * 添加分页插件
      */
     @Bean
     public MybatisPlusInterceptor mybatisPlusInterceptor() {
         MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        // 归档查询路由, 必须在分页插件之前
+        interceptor.addInnerInterceptor(new ArchiveTableNameInterceptor());
         // 使用MySQL方言
         interceptor.addInnerInterceptor(new PaginationInnerInterceptor(DbType.MYSQL));
         return interceptor;
     }
-}
\ No newline at end of file
+
+    /**
+     * 只在 ArchiveContext 中才解析并改写表名, 普通查询不额外解析 SQL
+     */
+    private static final class ArchiveTableNameInterceptor extends DynamicTableNameInnerInterceptor {
+
+        private ArchiveTableNameInterceptor() {
+            super((sql, tableName) -> ARCHIVED_TABLES.contains(tableName) ? tableName + "_archive" : tableName);
+        }
+
+        @Override
+        public void beforeQuery(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                                ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+            if (ArchiveContext.isArchive()) {
+                super.beforeQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql);
+            }
+        }
+
+        @Override
+        public void beforePrepare(StatementHandler sh, Connection connection, Integer transactionTimeout) {
+            if (ArchiveContext.isArchive()) {
+                super.beforePrepare(sh, connection, transactionTimeout);
+            }
+        }
+    }
+}
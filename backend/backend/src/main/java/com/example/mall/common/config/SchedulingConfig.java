@@ -0,0 +1,13 @@
+package com.example.mall.common.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 开启定时任务 (库存回写、对账等后台任务)
+ * 线程池大小见 spring.task.scheduling.pool.size
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
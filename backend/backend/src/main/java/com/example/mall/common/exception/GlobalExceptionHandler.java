@@ -28,6 +28,16 @@ public class GlobalExceptionHandler {
         return R.failed(e.getMessage());
     }
 
+    /**
+     * 处理库存不足异常, 返回所有库存不足的商品明细
+     */
+    @ExceptionHandler(StockShortageException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public R<?> handleStockShortageException(StockShortageException e) {
+        log.error("库存不足 -> {}", e.getShortages());
+        return R.failed(e.getMessage(), e.getShortages());
+    }
+
     /**
      * 处理参数校验异常
      */
@@ -0,0 +1,27 @@
+package com.example.mall.common.exception;
+
+import com.example.mall.module.product.dto.StockShortageDTO;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 库存不足异常, 携带所有库存不足的商品
+ */
+@Getter
+public class StockShortageException extends CustomException {
+
+    private final List<StockShortageDTO> shortages;
+
+    public StockShortageException(List<StockShortageDTO> shortages) {
+        super(buildMessage(shortages));
+        this.shortages = shortages;
+    }
+
+    private static String buildMessage(List<StockShortageDTO> shortages) {
+        return shortages.stream()
+                .map(s -> "'" + s.getProductName() + "'")
+                .collect(Collectors.joining("、", "商品 ", " 库存不足"));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.mall.common.util;
+
+import java.util.function.Supplier;
+
+/**
+ * 归档查询上下文: 在 query 内执行的 SQL 由 MyBatis-Plus 动态表名插件改写到对应的归档表
+ */
+public class ArchiveContext {
+    private static final ThreadLocal<Boolean> archiveThreadLocal = new ThreadLocal<>();
+
+    public static boolean isArchive() {
+        return Boolean.TRUE.equals(archiveThreadLocal.get());
+    }
+
+    public static <T> T query(Supplier<T> action) {
+        archiveThreadLocal.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            archiveThreadLocal.remove();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.mall.common.util;
+
+import com.example.mall.common.exception.CustomException;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 分页游标编解码: 将 (create_time, id) 或 (score, id) 编码为不透明的 URL 安全字符串
+ */
+public class CursorUtil {
+
+    private static final char SEPARATOR = '|';
+
+    public static String encode(LocalDateTime createTime, Long id) {
+        return toBase64(createTime.toString() + SEPARATOR + id);
+    }
+
+    /**
+     * 解码游标, 空游标表示第一页, 返回 null
+     */
+    public static Position decode(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        try {
+            String raw = fromBase64(cursor);
+            int index = raw.lastIndexOf(SEPARATOR);
+            return new Position(LocalDateTime.parse(raw.substring(0, index)), Long.valueOf(raw.substring(index + 1)));
+        } catch (RuntimeException e) {
+            throw new CustomException("无效的分页游标");
+        }
+    }
+
+    /**
+     * 按相关度排序的结果使用 (score, id) 作为游标
+     */
+    public static String encodeScore(double score, Long id) {
+        return toBase64(Double.toString(score) + SEPARATOR + id);
+    }
+
+    public static ScorePosition decodeScore(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        try {
+            String raw = fromBase64(cursor);
+            int index = raw.lastIndexOf(SEPARATOR);
+            return new ScorePosition(Double.parseDouble(raw.substring(0, index)), Long.parseLong(raw.substring(index + 1)));
+        } catch (RuntimeException e) {
+            throw new CustomException("无效的分页游标");
+        }
+    }
+
+    private static String toBase64(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String fromBase64(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+    public record Position(LocalDateTime createTime, Long id) {
+    }
+
+    public record ScorePosition(double score, long id) {
+    }
+}
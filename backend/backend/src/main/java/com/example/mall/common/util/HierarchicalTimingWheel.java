@@ -0,0 +1,142 @@
+package com.example.mall.common.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮 (参考 Kafka TimingWheel)
+ * 第0层每格 tickMs, 第 n 层每格 tickMs * wheelSize^n, 超出当前层范围的任务放入上一层,
+ * 上层的格子到期时再逐级下放. 添加任务和每次推进一格都是 O(1), 与任务总数无关.
+ * 任务最多提前一个 tickMs 到期, 对精度有要求的调用方应在截止时间上加一个 tickMs.
+ * 非线程安全, 应由单个线程调用 schedule / advanceTo.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final Level<T> root;
+    // 已到期但尚未交给调用方的任务
+    private final List<Entry<T>> due = new ArrayList<>();
+    private long currentTime;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("tickMs 必须大于0, wheelSize 必须大于1");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.currentTime = startMs - startMs % tickMs;
+        this.root = new Level<>(tickMs, wheelSize, currentTime);
+    }
+
+    /**
+     * 添加任务, 已过截止时间的任务在下一次 advanceTo 时立即到期
+     */
+    public void schedule(T item, long deadlineMs) {
+        size++;
+        Entry<T> entry = new Entry<>(item, deadlineMs);
+        if (!root.add(entry)) {
+            due.add(entry);
+        }
+    }
+
+    /**
+     * 推进时钟到 nowMs, 依次回调所有到期的任务
+     */
+    public void advanceTo(long nowMs, Consumer<T> onExpire) {
+        while (currentTime + tickMs <= nowMs) {
+            currentTime += tickMs;
+            tick(root);
+        }
+        if (!due.isEmpty()) {
+            List<Entry<T>> expired = new ArrayList<>(due);
+            due.clear();
+            size -= expired.size();
+            expired.forEach(entry -> onExpire.accept(entry.item));
+        }
+    }
+
+    /**
+     * 先更新本层时间再递归处理上层, 保证上层格子下放时各层时间都已推进;
+     * 上层到期的格子先下放, 再处理本层当前格子
+     */
+    private void tick(Level<T> level) {
+        level.currentTime = currentTime - currentTime % level.tickMs;
+        if (level.overflow != null) {
+            tick(level.overflow);
+        }
+        if (currentTime % level.tickMs != 0) {
+            return;
+        }
+        ArrayDeque<Entry<T>> bucket = level.bucketAt(currentTime);
+        Entry<T> entry;
+        while ((entry = bucket.poll()) != null) {
+            if (!root.add(entry)) {
+                due.add(entry);
+            }
+        }
+    }
+
+    /**
+     * 时间轮中尚未到期的任务数
+     */
+    public int size() {
+        return size;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    public int getWheelSize() {
+        return wheelSize;
+    }
+
+    private record Entry<T>(T item, long deadlineMs) {
+    }
+
+    private static final class Level<T> {
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final ArrayDeque<Entry<T>>[] buckets;
+        private long currentTime;
+        private Level<T> overflow;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.buckets = new ArrayDeque[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new ArrayDeque<>();
+            }
+            this.currentTime = startMs - startMs % tickMs;
+        }
+
+        /**
+         * 放入合适的格子, 已到期返回 false
+         */
+        private boolean add(Entry<T> entry) {
+            if (entry.deadlineMs < currentTime + tickMs) {
+                return false;
+            }
+            if (entry.deadlineMs < currentTime + interval) {
+                bucketAt(entry.deadlineMs).add(entry);
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level<>(interval, wheelSize, currentTime);
+            }
+            return overflow.add(entry);
+        }
+
+        private ArrayDeque<Entry<T>> bucketAt(long timeMs) {
+            return buckets[(int) ((timeMs / tickMs) % wheelSize)];
+        }
+    }
+}
@@ -1,17 +1,32 @@
 package com.example.mall.common.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+/**
+ * 签名密钥和解析器在启动时创建一次 (JwtParser 不可变, 线程安全);
+ * 校验通过的 Token 按其 SHA-256 摘要缓存 userId, 缓存项最晚在 Token 的 exp 时过期 (另受 max-ttl-seconds 限制),
+ * 同一 Token 的后续请求不再做 base64 解码、HMAC 校验和 JSON 解析. 校验失败的 Token 不缓存.
+ */
 @Component
 public class JwtUtil {
 
@@ -21,20 +36,80 @@ public class JwtUtil {
     @Value("${app.jwt.expiration-ms}")
     private long expirationMs;
 
-    // 从秘钥字符串生成 SecretKey
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @Value("${app.jwt.cache.maximum-size:100000}")
+    private long cacheMaximumSize;
+
+    @Value("${app.jwt.cache.max-ttl-seconds:600}")
+    private long cacheMaxTtlSeconds;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    // Token 摘要 -> 已校验的 Token
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parser().verifyWith(signingKey).build();
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(cacheMaxTtlSeconds);
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long untilExpiration = TimeUnit.MILLISECONDS.toNanos(value.expiresAt - System.currentTimeMillis());
+                        return Math.max(0, Math.min(untilExpiration, maxTtlNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
     // 从 Token 中提取所有 Claims
     private Claims getAllClaimsFromToken(String token) {
-        // [修正] 使用新的 jjwt 0.12.x API
-        // Jwts.parser() 返回一个 JwtParserBuilder 实例
-        return Jwts.parser()
-                .verifyWith(getSigningKey()) // 使用 verifyWith() 替代旧的 setSigningKey()
-                .build()
-                .parseSignedClaims(token) // 使用 parseSignedClaims() 替代旧的 parseClaimsJws()
-                .getPayload(); // 使用 getPayload() 获取 Claims
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    /**
+     * 校验 Token 并返回其中的 userId, 优先查已校验缓存
+     * @throws io.jsonwebtoken.JwtException Token 无效或已过期
+     */
+    public Long getUserIdFromToken(String token) {
+        String digest = digest(token);
+        VerifiedToken verified = verifiedTokens.getIfPresent(digest);
+        if (verified != null) {
+            return verified.userId;
+        }
+        // 过期的 Token 在这里抛出 ExpiredJwtException
+        Claims claims = getAllClaimsFromToken(token);
+        Long userId = claims.get("userId", Long.class);
+        long expiresAt = claims.getExpiration() != null
+                ? claims.getExpiration().getTime()
+                : System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(cacheMaxTtlSeconds);
+        verifiedTokens.put(digest, new VerifiedToken(userId, expiresAt));
+        return userId;
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().encodeToString(hash);
     }
 
     // 从 Token 中提取指定的 Claim
@@ -53,7 +128,7 @@ public class JwtUtil {
                 .subject(username)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expirationMs))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
@@ -72,4 +147,7 @@ public class JwtUtil {
     public boolean isTokenExpired(Claims claims) {
         return claims.getExpiration().before(new Date());
     }
-}
\ No newline at end of file
+
+    private record VerifiedToken(Long userId, long expiresAt) {
+    }
+}
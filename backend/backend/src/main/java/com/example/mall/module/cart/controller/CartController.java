@@ -1,7 +1,9 @@
 package com.example.mall.module.cart.controller;
 
 import com.example.mall.common.api.R;
+import com.example.mall.common.exception.CustomException;
 import com.example.mall.common.util.UserContext;
+import com.example.mall.module.cart.dto.CartBatchDTO;
 import com.example.mall.module.cart.entity.Cart;
 import com.example.mall.module.cart.service.CartService;
 import lombok.extern.slf4j.Slf4j;
@@ -16,6 +18,8 @@ import java.util.Map;
 @RequestMapping("/carts")
 public class CartController {
 
+    private static final int MAX_BATCH_OPERATIONS = 200;
+
     @Autowired
     private CartService cartService;
 
@@ -29,6 +33,25 @@ public class CartController {
         return R.success("添加成功", null);
     }
 
+    /**
+     * 批量加购/改数量/移除 (如全部加入购物车、登录后合并游客购物车), 返回修改后的购物车列表
+     */
+    @PostMapping("/batch")
+    public R<List<Cart>> batch(@RequestBody CartBatchDTO batchDTO) {
+        List<CartBatchDTO.Operation> operations = batchDTO.getOperations();
+        Long currentUserId = UserContext.getCurrentUserId();
+        log.info("【数据流入】接收到批量修改购物车请求: userId={}, count={}", currentUserId,
+                operations == null ? 0 : operations.size());
+        if (operations == null || operations.isEmpty()) {
+            throw new CustomException("操作列表不能为空");
+        }
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new CustomException("单次最多" + MAX_BATCH_OPERATIONS + "个操作");
+        }
+        cartService.applyBatch(currentUserId, operations);
+        return R.success("操作成功", cartService.getCartList(currentUserId));
+    }
+
     @GetMapping
     public R<List<Cart>> list() {
         Long currentUserId = UserContext.getCurrentUserId();
@@ -0,0 +1,23 @@
+package com.example.mall.module.cart.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量修改购物车 (POST /carts/batch), 按顺序在一个事务中执行, 任一操作校验失败则整体不生效
+ */
+@Data
+public class CartBatchDTO {
+
+    private List<Operation> operations;
+
+    @Data
+    public static class Operation {
+        // add: 累加数量 / set: 设为指定数量 / remove: 移除该商品
+        private String op;
+        private Long productId;
+        // add/set 时必填, 必须大于0
+        private Integer quantity;
+    }
+}
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.mall.module.cart.entity.Cart;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CartMapper extends BaseMapper<Cart> {
@@ -13,4 +14,36 @@ public interface CartMapper extends BaseMapper<Cart> {
      * 该方法的SQL实现在 CartMapper.xml 中
      */
     List<Cart> selectCartListByUserId(@Param("userId") Long userId);
+
+    /**
+     * 一条语句按ID批量更新数量 (写回模式合并写入使用)
+     */
+    int updateQuantityBatch(@Param("list") List<Cart> carts);
+
+    /**
+     * 加购: 不存在则插入, 已存在则累加数量; 累加后超过 maxQuantity 时不写入
+     * @return 0 表示超过上限未写入, 1 为新增, 2 为累加
+     */
+    int upsertQuantity(@Param("userId") Long userId, @Param("productId") Long productId,
+                       @Param("quantity") Integer quantity, @Param("maxQuantity") Integer maxQuantity);
+
+    /**
+     * 按ID升序锁定并查询购物车项
+     */
+    List<Cart> selectByIdsForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 锁定并查询用户购物车中指定商品的记录
+     */
+    List<Cart> selectByProductIdsForUpdate(@Param("userId") Long userId, @Param("productIds") Collection<Long> productIds);
+
+    /**
+     * 一条多行 INSERT ... ON DUPLICATE KEY UPDATE 把指定商品的数量设为给定值
+     */
+    int upsertBatch(@Param("userId") Long userId, @Param("list") List<Cart> carts);
+
+    /**
+     * 按商品删除用户购物车中的记录
+     */
+    int deleteByProductIds(@Param("userId") Long userId, @Param("productIds") Collection<Long> productIds);
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package com.example.mall.module.cart.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.mall.module.cart.dto.CartBatchDTO;
 import com.example.mall.module.cart.entity.Cart;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface CartService extends IService<Cart> {
 
@@ -12,6 +15,11 @@ public interface CartService extends IService<Cart> {
      */
     void addProduct(Long userId, Long productId, Integer quantity);
 
+    /**
+     * 批量修改购物车: 同一商品的多个操作按顺序合并, 所有操作在一个事务中用多行语句写入, 任一校验失败则整体不生效
+     */
+    void applyBatch(Long userId, List<CartBatchDTO.Operation> operations);
+
     /**
      * 获取用户的购物车列表
      */
@@ -26,4 +34,20 @@ public interface CartService extends IService<Cart> {
      * 从购物车删除商品
      */
     void deleteProduct(Long userId, Long cartId);
-}
\ No newline at end of file
+
+    /**
+     * 在当前事务内按ID升序锁定并查询购物车项, 用作下单的防重: 并发结算同一批购物车项时后到者等待, 读到已删除的结果
+     */
+    List<Cart> listByIdsForUpdate(Collection<Long> cartIds);
+
+    /**
+     * 结算前把该用户购物车的未落库修改写入数据库 (写回模式), 否则无操作
+     */
+    void flush(Long userId);
+
+    /**
+     * 删除已结算的购物车项 (一条语句); 写回模式下在事务提交后同步移除内存中的对应项
+     * @param cartIds 用户ID -> 该用户已结算的购物车项ID
+     */
+    void removeCheckedOut(Map<Long, List<Long>> cartIds);
+}
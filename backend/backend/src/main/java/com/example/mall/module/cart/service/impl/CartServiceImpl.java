@@ -3,67 +3,182 @@ package com.example.mall.module.cart.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.example.mall.common.exception.CustomException;
+import com.example.mall.module.cart.dto.CartBatchDTO;
 import com.example.mall.module.cart.entity.Cart;
 import com.example.mall.module.cart.mapper.CartMapper;
 import com.example.mall.module.cart.service.CartService;
+import com.example.mall.module.product.dto.ProductSnapshot;
 import com.example.mall.module.product.entity.Product;
 import com.example.mall.module.product.service.ProductService;
+import com.example.mall.module.product.service.StockService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Service
 public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements CartService {
 
     @Autowired
-    private ProductService productService;
+    private StockService stockService;
 
     @Autowired
     private CartMapper cartMapper;
 
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // 仅在 app.cart.write-behind.enabled=true 时存在
+    @Autowired(required = false)
+    private CartStore cartStore;
+
     @Override
     public void addProduct(Long userId, Long productId, Integer quantity) {
         log.info("【业务处理】用户'{}'添加商品'{}'到购物车, 数量:{}", userId, productId, quantity);
 
-        Product product = productService.getById(productId);
-        log.info("【数据查询】根据商品ID'{}'查询到: {}", productId, product != null);
-        Assert.notNull(product, "商品不存在");
-        if (product.getStock() < quantity) {
+        Integer stock = stockService.getAvailableStock(productId);
+        Assert.notNull(stock, "商品不存在");
+        if (stock < quantity) {
             throw new CustomException("商品库存不足");
         }
 
-        // 检查购物车是否已存在该商品
-        LambdaQueryWrapper<Cart> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Cart::getUserId, userId).eq(Cart::getProductId, productId);
-        Cart existingCartItem = this.getOne(queryWrapper);
-
-        if (existingCartItem != null) {
-            log.info("【业务处理】购物车已存在该商品, 更新数量");
-            int newQuantity = existingCartItem.getQuantity() + quantity;
-            if (product.getStock() < newQuantity) {
-                throw new CustomException("商品库存不足");
+        if (cartStore != null) {
+            cartStore.add(userId, productId, quantity, stock);
+            return;
+        }
+
+        // 一条语句完成新增或累加, 由 uk_user_product 保证并发加购不会插入重复行; 累加后超过库存时不写入
+        int result = cartMapper.upsertQuantity(userId, productId, quantity, stock);
+        if (result == 0) {
+            throw new CustomException("商品库存不足");
+        }
+        log.info("【数据写入】{}购物车记录", result == 1 ? "新增" : "累加");
+    }
+
+    @Override
+    public void applyBatch(Long userId, List<CartBatchDTO.Operation> operations) {
+        log.info("【业务处理】用户'{}'批量修改购物车, 操作数: {}", userId, operations.size());
+        Map<Long, Change> changes = fold(operations);
+        Set<Long> keptProductIds = new HashSet<>();
+        changes.forEach((productId, change) -> {
+            if (!change.removed) {
+                keptProductIds.add(productId);
             }
-            existingCartItem.setQuantity(newQuantity);
-            boolean result = this.updateById(existingCartItem);
-            log.info("【数据写入】更新购物车数量操作结果: {}", result);
+        });
+        Map<Long, Integer> stocks = stockService.getAvailableStocks(keptProductIds);
+        for (Long productId : keptProductIds) {
+            if (!stocks.containsKey(productId)) {
+                throw new CustomException("商品'" + productId + "'不存在");
+            }
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Runnable batch = () -> transactionTemplate.executeWithoutResult(status -> writeBatch(userId, changes, stocks));
+        if (cartStore != null) {
+            cartStore.writeThrough(userId, batch);
         } else {
-            log.info("【业务处理】购物车不存在该商品, 新增记录");
-            Cart newCartItem = new Cart();
-            newCartItem.setUserId(userId);
-            newCartItem.setProductId(productId);
-            newCartItem.setQuantity(quantity);
-            boolean result = this.save(newCartItem);
-            log.info("【数据写入】新增购物车记录操作结果: {}", result);
+            batch.run();
+        }
+    }
+
+    /**
+     * 按顺序合并同一商品的多个操作, 每个商品只剩一个最终效果
+     */
+    private Map<Long, Change> fold(List<CartBatchDTO.Operation> operations) {
+        Map<Long, Change> changes = new LinkedHashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            CartBatchDTO.Operation operation = operations.get(i);
+            String prefix = "第" + (i + 1) + "个操作";
+            Assert.notNull(operation, prefix + "不能为空");
+            Assert.notNull(operation.getProductId(), prefix + "缺少productId");
+            String op = operation.getOp() == null ? "" : operation.getOp().toLowerCase(Locale.ROOT);
+            if (!op.equals("remove")) {
+                Assert.isTrue(operation.getQuantity() != null && operation.getQuantity() > 0, prefix + "的数量必须大于0");
+            }
+            Change change = changes.computeIfAbsent(operation.getProductId(), id -> new Change());
+            switch (op) {
+                case "add" -> {
+                    change.delta += operation.getQuantity();
+                    change.removed = false;
+                }
+                case "set" -> {
+                    change.base = operation.getQuantity();
+                    change.delta = 0;
+                    change.removed = false;
+                }
+                case "remove" -> {
+                    change.base = 0;
+                    change.delta = 0;
+                    change.removed = true;
+                }
+                default -> throw new CustomException(prefix + "不支持: " + operation.getOp());
+            }
         }
+        return changes;
+    }
+
+    /**
+     * 锁定涉及的购物车行, 计算最终数量并校验库存, 再用一条多行 upsert 和一条 DELETE 写入
+     */
+    private void writeBatch(Long userId, Map<Long, Change> changes, Map<Long, Integer> stocks) {
+        Map<Long, Integer> existing = new HashMap<>();
+        cartMapper.selectByProductIdsForUpdate(userId, changes.keySet())
+                .forEach(cart -> existing.put(cart.getProductId(), cart.getQuantity()));
+        List<Cart> upserts = new ArrayList<>();
+        List<Long> removes = new ArrayList<>();
+        changes.forEach((productId, change) -> {
+            Integer current = existing.get(productId);
+            if (change.removed) {
+                if (current != null) {
+                    removes.add(productId);
+                }
+                return;
+            }
+            int quantity = (change.base != null ? change.base : (current == null ? 0 : current)) + change.delta;
+            if (quantity > stocks.get(productId)) {
+                throw new CustomException("商品'" + productId + "'库存不足");
+            }
+            if (current != null && current == quantity) {
+                return;
+            }
+            Cart cart = new Cart();
+            cart.setProductId(productId);
+            cart.setQuantity(quantity);
+            upserts.add(cart);
+        });
+        if (!upserts.isEmpty()) {
+            cartMapper.upsertBatch(userId, upserts);
+        }
+        if (!removes.isEmpty()) {
+            cartMapper.deleteByProductIds(userId, removes);
+        }
+        log.info("【数据写入】用户'{}'批量修改购物车: 写入 {} 项, 删除 {} 项", userId, upserts.size(), removes.size());
     }
 
     @Override
     public List<Cart> getCartList(Long userId) {
         log.info("【业务处理】获取用户'{}'的购物车列表", userId);
+        if (cartStore != null) {
+            return withProducts(cartStore.list(userId));
+        }
         // 此处直接调用Mapper中定义的多表查询方法
         List<Cart> carts = cartMapper.selectCartListByUserId(userId);
         log.info("【数据查询】为用户'{}'查询到 {} 条购物车记录", userId, carts.size());
@@ -75,7 +190,7 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements Ca
         log.info("【业务处理】用户'{}'更新购物车项'{}'数量为: {}", userId, cartId, quantity);
         Assert.isTrue(quantity > 0, "商品数量必须大于0");
 
-        Cart cartItem = this.getById(cartId);
+        Cart cartItem = cartStore != null ? cartStore.get(userId, cartId) : this.getById(cartId);
         log.info("【数据查询】根据购物车ID'{}'查询到: {}", cartId, cartItem != null);
         Assert.notNull(cartItem, "购物车项不存在");
 
@@ -83,14 +198,17 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements Ca
             throw new CustomException("无权操作他人购物车");
         }
 
-        Product product = productService.getById(cartItem.getProductId());
-        log.info("【数据查询】根据商品ID'{}'查询到: {}", cartItem.getProductId(), product != null);
-        Assert.notNull(product, "关联商品不存在");
+        Integer stock = stockService.getAvailableStock(cartItem.getProductId());
+        Assert.notNull(stock, "关联商品不存在");
 
-        if (product.getStock() < quantity) {
+        if (stock < quantity) {
             throw new CustomException("商品库存不足");
         }
 
+        if (cartStore != null) {
+            Assert.isTrue(cartStore.setQuantity(userId, cartId, quantity), "购物车项不存在");
+            return;
+        }
         cartItem.setQuantity(quantity);
         boolean result = this.updateById(cartItem);
         log.info("【数据写入】更新购物车数量操作结果: {}", result);
@@ -99,6 +217,12 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements Ca
     @Override
     public void deleteProduct(Long userId, Long cartId) {
         log.info("【业务处理】用户'{}'删除购物车项'{}'", userId, cartId);
+        if (cartStore != null) {
+            if (!cartStore.remove(userId, cartId)) {
+                log.warn("购物车项不存在或不属于当前用户, 操作忽略");
+            }
+            return;
+        }
 
         Cart cartItem = this.getById(cartId);
         log.info("【数据查询】根据购物车ID'{}'查询到: {}", cartId, cartItem != null);
@@ -111,4 +235,83 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements Ca
         boolean result = this.removeById(cartId);
         log.info("【数据写入】删除购物车记录操作结果: {}", result);
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<Cart> listByIdsForUpdate(Collection<Long> cartIds) {
+        if (cartIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return cartMapper.selectByIdsForUpdate(cartIds);
+    }
+
+    @Override
+    public void flush(Long userId) {
+        if (cartStore != null) {
+            cartStore.flush(userId);
+        }
+    }
+
+    @Override
+    public void removeCheckedOut(Map<Long, List<Long>> cartIds) {
+        List<Long> allCartIds = new ArrayList<>();
+        cartIds.values().forEach(allCartIds::addAll);
+        if (allCartIds.isEmpty()) {
+            return;
+        }
+        LambdaQueryWrapper<Cart> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.in(Cart::getId, allCartIds);
+        if (cartIds.size() == 1) {
+            queryWrapper.eq(Cart::getUserId, cartIds.keySet().iterator().next());
+        }
+        boolean result = this.remove(queryWrapper);
+        log.info("【数据写入】清空购物车记录: {}, 结果: {}", allCartIds, result);
+        if (cartStore == null) {
+            return;
+        }
+        // 提交后再从内存购物车移除, 订单回滚时购物车保持不变
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cartIds.forEach(cartStore::checkedOut);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cartIds.forEach(cartStore::checkedOut);
+            }
+        });
+    }
+
+    /**
+     * 单个商品合并后的效果: removed 为 true 时删除, 否则最终数量为 base (为 null 时取当前数量, 没有记录为0) + delta
+     */
+    private static final class Change {
+        private Integer base;
+        private int delta;
+        private boolean removed;
+    }
+
+    /**
+     * 写回模式下补齐商品名称/价格/图片; 与连表查询一致, 商品已不存在的购物车项不返回
+     */
+    private List<Cart> withProducts(List<Cart> carts) {
+        List<Long> productIds = carts.stream().map(Cart::getProductId).toList();
+        Map<Long, ProductSnapshot> snapshots = new HashMap<>(productIds.size() * 2);
+        productService.getProductSnapshots(productIds, true).getProducts()
+                .forEach(snapshot -> snapshots.put(snapshot.id(), snapshot));
+        List<Cart> result = new ArrayList<>(carts.size());
+        for (Cart cart : carts) {
+            ProductSnapshot snapshot = snapshots.get(cart.getProductId());
+            if (snapshot == null) {
+                continue;
+            }
+            Product product = new Product();
+            product.setName(snapshot.name());
+            product.setPrice(snapshot.price());
+            product.setImageUrl(snapshot.imageUrl());
+            cart.setProduct(product);
+            result.add(cart);
+        }
+        log.info("【数据查询】为用户购物车补齐 {} 个商品信息", snapshots.size());
+        return result;
+    }
+}
@@ -0,0 +1,492 @@
+package com.example.mall.module.cart.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.example.mall.common.exception.CustomException;
+import com.example.mall.module.cart.entity.Cart;
+import com.example.mall.module.cart.mapper.CartMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 写回式购物车 (app.cart.write-behind.enabled=true 时启用)
+ * 活跃用户的购物车整份加载到内存, 按用户数上限和空闲时间淘汰; 改数量/删除只修改内存并标记待写,
+ * 定时把所有用户的待写修改合并成一条批量 UPDATE 和一条批量 DELETE, 同一项的多次修改只写最后一次.
+ * 新增商品立即插入以取得购物车项ID; 结算前 (下单事务开启之前) 调用 flush 强制写回, 停机时同步写回.
+ * 淘汰不做数据库 I/O: 有待写修改的购物车留在待写队列中由定时任务写回 (失败时下一轮重试), 写回前该用户再次访问时直接复用它.
+ * 内存状态以本进程为准, 多副本部署时需按用户粘性路由.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.cart.write-behind.enabled", havingValue = "true")
+public class CartStore {
+
+    @Autowired
+    private CartMapper cartMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.cart.write-behind.maximum-users:10000}")
+    private long maximumUsers;
+
+    @Value("${app.cart.write-behind.idle-seconds:1800}")
+    private long idleSeconds;
+
+    private Cache<Long, UserCart> cache;
+    private TransactionTemplate transactionTemplate;
+    // 有待写修改或正在写回的购物车 (包括已被淘汰的), 写回成功后移除
+    private final ConcurrentHashMap<Long, UserCart> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // 写回总是独立提交; 不应在其他事务中调用, 否则同时占用两个连接
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumUsers)
+                .expireAfterAccess(Duration.ofSeconds(idleSeconds))
+                // 与移除在同一原子操作中执行, 同一用户的重新加载在其之后进行
+                .evictionListener((Long userId, UserCart cart, RemovalCause cause) -> {
+                    if (cart != null) {
+                        retire(cart);
+                    }
+                })
+                .build();
+        log.info("【购物车】写回模式已启用, 用户数上限: {}, 空闲淘汰: {}s", maximumUsers, idleSeconds);
+    }
+
+    /**
+     * 用户购物车的副本 (按购物车项ID升序), 不含商品信息
+     */
+    public List<Cart> list(Long userId) {
+        UserCart cart = acquire(userId);
+        try {
+            List<Cart> items = new ArrayList<>(cart.items.size());
+            cart.items.values().forEach(item -> items.add(copy(item)));
+            return items;
+        } finally {
+            release(cart);
+        }
+    }
+
+    /**
+     * 购物车项的副本, 不存在或不属于该用户时返回 null
+     */
+    public Cart get(Long userId, Long cartId) {
+        UserCart cart = acquire(userId);
+        try {
+            Cart item = cart.items.get(cartId);
+            return item == null ? null : copy(item);
+        } finally {
+            release(cart);
+        }
+    }
+
+    /**
+     * 添加商品, 已有该商品时累加数量 (待写), 该商品待删除时撤销删除并复用原行 (待写), 否则立即插入一行
+     * @param stock 当前可用库存, 累加后的数量不能超过它
+     */
+    public void add(Long userId, Long productId, int quantity, int stock) {
+        UserCart cart = acquire(userId);
+        try {
+            if (merge(cart, productId, quantity, stock)) {
+                return;
+            }
+        } finally {
+            release(cart);
+        }
+        // 插入前持有 flushLock: 正在写回的删除提交前, 原行仍占用 (user_id, product_id) 唯一键;
+        // 写回失败时删除会放回待删除集合, 重新检查后复用原行
+        withFlushLock(userId, locked -> {
+            if (merge(locked, productId, quantity, stock)) {
+                return;
+            }
+            Cart item = new Cart();
+            item.setUserId(userId);
+            item.setProductId(productId);
+            item.setQuantity(quantity);
+            cartMapper.insert(item);
+            item.setCreateTime(LocalDateTime.now());
+            item.setUpdateTime(item.getCreateTime());
+            locked.items.put(item.getId(), item);
+            log.info("【数据写入】新增购物车记录: {}", item.getId());
+        });
+    }
+
+    /**
+     * 修改数量 (待写)
+     * @return 购物车项不存在或不属于该用户时返回 false
+     */
+    public boolean setQuantity(Long userId, Long cartId, int quantity) {
+        UserCart cart = acquire(userId);
+        try {
+            Cart item = cart.items.get(cartId);
+            if (item == null) {
+                return false;
+            }
+            item.setQuantity(quantity);
+            markDirty(cart, cartId);
+            return true;
+        } finally {
+            release(cart);
+        }
+    }
+
+    /**
+     * 删除购物车项 (待写)
+     * @return 购物车项不存在或不属于该用户时返回 false
+     */
+    public boolean remove(Long userId, Long cartId) {
+        UserCart cart = acquire(userId);
+        try {
+            Cart item = cart.items.remove(cartId);
+            if (item == null) {
+                return false;
+            }
+            cart.dirty.remove(cartId);
+            cart.deleted.put(cartId, item);
+            pending.put(userId, cart);
+            return true;
+        } finally {
+            release(cart);
+        }
+    }
+
+    /**
+     * 直接写库的批量修改: 先写回该用户的待写修改, 执行 batch 后从数据库重新加载该用户的购物车;
+     * 期间该用户的其他修改等待. batch 需自行提交事务
+     */
+    public void writeThrough(Long userId, Runnable batch) {
+        withFlushLock(userId, cart -> {
+            write(List.of(cart));
+            batch.run();
+            cart.items.clear();
+            selectRows(userId).forEach(row -> cart.items.put(row.getId(), row));
+        });
+    }
+
+    /**
+     * 已结算的购物车项已从数据库删除 (订单事务提交后调用), 从内存中移除; 购物车不在内存中时无需处理
+     */
+    public void checkedOut(Long userId, Collection<Long> cartIds) {
+        UserCart cart = cache.getIfPresent(userId);
+        if (cart == null) {
+            // 已被淘汰但尚未写回的购物车
+            cart = pending.get(userId);
+        }
+        if (cart == null) {
+            return;
+        }
+        UserCart target = cart;
+        target.lock.lock();
+        try {
+            cartIds.forEach(cartId -> {
+                target.items.remove(cartId);
+                target.dirty.remove(cartId);
+            });
+        } finally {
+            target.lock.unlock();
+        }
+    }
+
+    /**
+     * 立即写回该用户的待写修改 (结算前调用), 写入失败时抛出异常
+     */
+    public void flush(Long userId) {
+        UserCart cart = pending.get(userId);
+        if (cart == null) {
+            return;
+        }
+        cart.flushLock.lock();
+        try {
+            write(List.of(cart));
+        } finally {
+            cart.flushLock.unlock();
+        }
+    }
+
+    /**
+     * 合并写回所有用户的待写修改; 正在被其他线程写回的购物车留到下一轮
+     */
+    @Scheduled(fixedDelayString = "${app.cart.write-behind.flush-interval-ms:1000}")
+    public void flushAll() {
+        List<UserCart> carts = new ArrayList<>();
+        for (UserCart cart : pending.values()) {
+            if (cart.flushLock.tryLock()) {
+                carts.add(cart);
+            }
+        }
+        if (carts.isEmpty()) {
+            return;
+        }
+        try {
+            write(carts);
+        } catch (RuntimeException e) {
+            log.error("【购物车】批量写回失败, 等待重试: {}", e.getMessage());
+        } finally {
+            carts.forEach(cart -> cart.flushLock.unlock());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushAll();
+        if (!pending.isEmpty()) {
+            log.warn("【购物车】停机时仍有 {} 个用户的购物车修改未写回", pending.size());
+        }
+    }
+
+    /**
+     * 取出购物车并加锁, 未加载时从数据库加载; 拿到的购物车已被淘汰时重新获取
+     */
+    private UserCart acquire(Long userId) {
+        while (true) {
+            UserCart cart = cache.get(userId, this::load);
+            cart.lock.lock();
+            if (!cart.retired) {
+                return cart;
+            }
+            cart.lock.unlock();
+        }
+    }
+
+    private void release(UserCart cart) {
+        cart.lock.unlock();
+    }
+
+    /**
+     * 按 flushLock -> lock 的顺序持有购物车的两把锁执行 action, 期间该购物车没有进行中的写回
+     */
+    private void withFlushLock(Long userId, Consumer<UserCart> action) {
+        while (true) {
+            UserCart cart = cache.get(userId, this::load);
+            cart.flushLock.lock();
+            try {
+                cart.lock.lock();
+                try {
+                    if (cart.retired) {
+                        continue;
+                    }
+                    action.accept(cart);
+                    return;
+                } finally {
+                    cart.lock.unlock();
+                }
+            } finally {
+                cart.flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 已有该商品时累加数量, 该商品待删除时撤销删除并以本次数量复用原行; 调用方持有 lock
+     * @return 是否已处理, false 表示需要插入新行
+     */
+    private boolean merge(UserCart cart, Long productId, int quantity, int stock) {
+        for (Cart item : cart.items.values()) {
+            if (item.getProductId().equals(productId)) {
+                int newQuantity = item.getQuantity() + quantity;
+                if (stock < newQuantity) {
+                    throw new CustomException("商品库存不足");
+                }
+                item.setQuantity(newQuantity);
+                markDirty(cart, item.getId());
+                log.info("【购物车】用户'{}'的购物车项'{}'数量改为{}, 待写回", cart.userId, item.getId(), newQuantity);
+                return true;
+            }
+        }
+        for (Cart item : cart.deleted.values()) {
+            if (item.getProductId().equals(productId)) {
+                if (stock < quantity) {
+                    throw new CustomException("商品库存不足");
+                }
+                cart.deleted.remove(item.getId());
+                item.setQuantity(quantity);
+                cart.items.put(item.getId(), item);
+                markDirty(cart, item.getId());
+                log.info("【购物车】用户'{}'的购物车项'{}'撤销删除, 数量改为{}, 待写回", cart.userId, item.getId(), quantity);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 已被淘汰但修改尚未写回的购物车直接复用, 数据库中还不是最新内容
+     */
+    private UserCart load(Long userId) {
+        UserCart retired = pending.get(userId);
+        if (retired != null) {
+            retired.lock.lock();
+            try {
+                retired.retired = false;
+            } finally {
+                retired.lock.unlock();
+            }
+            log.info("【购物车】复用用户'{}'尚未写回的购物车 {} 项", userId, retired.items.size());
+            return retired;
+        }
+        List<Cart> rows = selectRows(userId);
+        UserCart cart = new UserCart(userId);
+        rows.forEach(row -> cart.items.put(row.getId(), row));
+        log.info("【数据查询】加载用户'{}'的购物车 {} 项", userId, rows.size());
+        return cart;
+    }
+
+    private List<Cart> selectRows(Long userId) {
+        LambdaQueryWrapper<Cart> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(Cart::getUserId, userId).orderByAsc(Cart::getId);
+        return cartMapper.selectList(queryWrapper);
+    }
+
+    private void markDirty(UserCart cart, Long cartId) {
+        cart.dirty.add(cartId);
+        pending.put(cart.userId, cart);
+    }
+
+    /**
+     * 淘汰时只标记失效, 不访问数据库: 有待写修改 (或正在写回) 的购物车留在 pending 中,
+     * 由定时任务写回, 失败时下一轮重试; 没有修改的直接丢弃
+     */
+    private void retire(UserCart cart) {
+        cart.lock.lock();
+        try {
+            cart.retired = true;
+            if (cart.dirty.isEmpty() && cart.deleted.isEmpty() && !cart.flushLock.isLocked()) {
+                pending.remove(cart.userId, cart);
+            }
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    /**
+     * 调用方持有这些购物车的 flushLock: 取出待写修改后在一个事务中写入, 失败时放回
+     */
+    private void write(List<UserCart> carts) {
+        Map<UserCart, Snapshot> snapshots = new LinkedHashMap<>();
+        List<Cart> updates = new ArrayList<>();
+        List<Long> deletes = new ArrayList<>();
+        for (UserCart cart : carts) {
+            Snapshot snapshot;
+            cart.lock.lock();
+            try {
+                if (cart.dirty.isEmpty() && cart.deleted.isEmpty()) {
+                    pending.remove(cart.userId, cart);
+                    continue;
+                }
+                Map<Long, Integer> quantities = new HashMap<>(cart.dirty.size() * 2);
+                cart.dirty.forEach(cartId -> quantities.put(cartId, cart.items.get(cartId).getQuantity()));
+                snapshot = new Snapshot(quantities, new HashMap<>(cart.deleted));
+                cart.dirty.clear();
+                cart.deleted.clear();
+            } finally {
+                cart.lock.unlock();
+            }
+            snapshots.put(cart, snapshot);
+            snapshot.quantities.forEach((cartId, quantity) -> {
+                Cart row = new Cart();
+                row.setId(cartId);
+                row.setQuantity(quantity);
+                updates.add(row);
+            });
+            deletes.addAll(snapshot.deleted.keySet());
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!updates.isEmpty()) {
+                    cartMapper.updateQuantityBatch(updates);
+                }
+                if (!deletes.isEmpty()) {
+                    cartMapper.deleteBatchIds(deletes);
+                }
+            });
+        } catch (RuntimeException e) {
+            snapshots.forEach((cart, snapshot) -> {
+                cart.lock.lock();
+                try {
+                    snapshot.quantities.keySet().stream()
+                            .filter(cart.items::containsKey)
+                            .forEach(cart.dirty::add);
+                    cart.deleted.putAll(snapshot.deleted);
+                } finally {
+                    cart.lock.unlock();
+                }
+            });
+            throw e;
+        }
+        // 写回期间又有新修改的购物车留在 pending 中等待下一轮
+        snapshots.keySet().forEach(cart -> {
+            cart.lock.lock();
+            try {
+                if (cart.dirty.isEmpty() && cart.deleted.isEmpty()) {
+                    pending.remove(cart.userId, cart);
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        });
+        log.info("【数据写入】写回 {} 个用户的购物车: 更新 {} 项, 删除 {} 项", snapshots.size(), updates.size(), deletes.size());
+    }
+
+    private static Cart copy(Cart item) {
+        Cart copy = new Cart();
+        BeanUtils.copyProperties(item, copy);
+        return copy;
+    }
+
+    /**
+     * 单个用户的购物车; 内容和待写集合的读写都需持有 lock
+     */
+    private static final class UserCart {
+        private final Long userId;
+        // 购物车项ID -> 购物车项, 按ID升序
+        private final Map<Long, Cart> items = new TreeMap<>();
+        // 数量待写回的购物车项ID
+        private final Set<Long> dirty = new HashSet<>();
+        // 待删除的购物车项ID -> 删除前的购物车项, 写回前重新添加同一商品时复用
+        private final Map<Long, Cart> deleted = new HashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        // 同一购物车的写回串行执行, 避免两次写回乱序落库
+        private final ReentrantLock flushLock = new ReentrantLock();
+        private boolean retired;
+
+        private UserCart(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    private record Snapshot(Map<Long, Integer> quantities, Map<Long, Cart> deleted) {
+    }
+}
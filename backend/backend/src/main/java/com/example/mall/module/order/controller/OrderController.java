@@ -2,38 +2,84 @@ package com.example.mall.module.order.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.mall.common.api.R;
+import com.example.mall.common.exception.CustomException;
 import com.example.mall.common.util.UserContext;
+import com.example.mall.module.cart.service.CartService;
+import com.example.mall.module.order.dto.FlashSaleResultDTO;
 import com.example.mall.module.order.dto.OrderCreateDTO;
+import com.example.mall.module.order.dto.OrderTransitionDTO;
+import com.example.mall.module.order.dto.OrderTransitionResultDTO;
 import com.example.mall.module.order.entity.Order;
+import com.example.mall.module.order.entity.OrderTransition;
+import com.example.mall.module.order.service.FlashSaleService;
 import com.example.mall.module.order.service.OrderService;
+import com.example.mall.module.order.service.impl.GroupCommitOrderExecutor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Locale;
+
 @Slf4j
 @RestController
 @RequestMapping("/orders")
 public class OrderController {
+
+    private static final int MAX_ITEM_PREVIEW = 20;
+    private static final int MAX_TRANSITION_ORDERS = 10000;
+
     @Autowired
     private OrderService orderService;
+    @Autowired
+    private FlashSaleService flashSaleService;
+    @Autowired
+    private GroupCommitOrderExecutor groupCommitOrderExecutor;
+    @Autowired
+    private CartService cartService;
 
     @PostMapping("/create")
     public R<Order> create(@RequestBody OrderCreateDTO createDTO) {
         Long currentUserId = UserContext.getCurrentUserId();
         log.info("【数据流入】接收到创建订单请求: userId={}, DTO={}", currentUserId, createDTO);
-        Order order = orderService.createOrder(currentUserId, createDTO);
+        Order order;
+        if (groupCommitOrderExecutor.isEnabled()) {
+            order = groupCommitOrderExecutor.submit(currentUserId, createDTO);
+        } else {
+            // 写回模式下先把内存中的购物车修改落库, 在下单事务开启之前完成, 不与订单事务同时占用两个连接
+            cartService.flush(currentUserId);
+            order = orderService.createOrder(currentUserId, createDTO);
+        }
         return R.success("订单创建成功", order);
     }
 
+    @PostMapping("/flash/{productId}")
+    public R<FlashSaleResultDTO> createFlashSale(@PathVariable Long productId, @RequestBody OrderCreateDTO createDTO) {
+        Long currentUserId = UserContext.getCurrentUserId();
+        log.info("【数据流入】接收到秒杀下单请求: userId={}, productId={}", currentUserId, productId);
+        FlashSaleResultDTO result = flashSaleService.submit(currentUserId, productId, createDTO);
+        return R.success("请求已受理", result);
+    }
+
+    @GetMapping("/flash/tickets/{ticketId}")
+    public R<FlashSaleResultDTO> getFlashSaleResult(@PathVariable String ticketId) {
+        Long currentUserId = UserContext.getCurrentUserId();
+        log.info("【数据流入】接收到秒杀结果查询请求: userId={}, ticketId={}", currentUserId, ticketId);
+        return R.success("查询成功", flashSaleService.getResult(currentUserId, ticketId));
+    }
+
     @GetMapping
     public R<Page<Order>> list(
             @RequestParam(defaultValue = "1") long page,
             @RequestParam(defaultValue = "10") long size,
-            @RequestParam(required = false) Integer status) {
+            @RequestParam(required = false) Integer status,
+            @RequestParam(defaultValue = "false") boolean withItems,
+            @RequestParam(defaultValue = "3") int itemLimit) {
         Long currentUserId = UserContext.getCurrentUserId();
-        log.info("【数据流入】接收到订单列表查询请求: userId={}, page={}, size={}, status={}", currentUserId, page, size, status);
+        log.info("【数据流入】接收到订单列表查询请求: userId={}, page={}, size={}, status={}, withItems={}", currentUserId, page, size, status, withItems);
         Page<Order> pageInfo = new Page<>(page, size);
-        Page<Order> resultPage = orderService.listUserOrders(currentUserId, pageInfo, status);
+        int limit = Math.min(Math.max(itemLimit, 1), MAX_ITEM_PREVIEW);
+        Page<Order> resultPage = orderService.listUserOrders(currentUserId, pageInfo, status, withItems, limit);
         return R.success("查询成功", resultPage);
     }
 
@@ -52,4 +98,44 @@ public class OrderController {
         orderService.payOrder(currentUserId, orderNo);
         return R.success("支付成功", null);
     }
+
+    @PostMapping("/{orderNo}/cancel")
+    public R<Void> cancel(@PathVariable String orderNo) {
+        Long currentUserId = UserContext.getCurrentUserId();
+        log.info("【数据流入】接收到取消订单请求: userId={}, orderNo={}", currentUserId, orderNo);
+        orderService.cancelOrder(currentUserId, orderNo);
+        return R.success("取消成功", null);
+    }
+
+    @PostMapping("/{orderNo}/confirm")
+    public R<Void> confirm(@PathVariable String orderNo) {
+        Long currentUserId = UserContext.getCurrentUserId();
+        log.info("【数据流入】接收到确认收货请求: userId={}, orderNo={}", currentUserId, orderNo);
+        orderService.confirmReceipt(currentUserId, orderNo);
+        return R.success("确认收货成功", null);
+    }
+
+    /**
+     * 批量状态迁移 (支付回调/仓库发货), transition 取值: pay / ship / complete / cancel
+     */
+    @PostMapping("/admin/transitions/{transition}") // 实际项目中应加权限控制
+    public R<List<OrderTransitionResultDTO>> transition(@PathVariable String transition,
+                                                        @RequestBody OrderTransitionDTO transitionDTO) {
+        log.info("【数据流入】(Admin)接收到批量订单状态迁移请求: transition={}, count={}", transition,
+                transitionDTO.getOrderNos() == null ? 0 : transitionDTO.getOrderNos().size());
+        OrderTransition orderTransition;
+        try {
+            orderTransition = OrderTransition.valueOf(transition.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new CustomException("不支持的订单操作: " + transition);
+        }
+        List<String> orderNos = transitionDTO.getOrderNos();
+        if (orderNos == null || orderNos.isEmpty()) {
+            throw new CustomException("订单号列表不能为空");
+        }
+        if (orderNos.size() > MAX_TRANSITION_ORDERS) {
+            throw new CustomException("单次最多处理" + MAX_TRANSITION_ORDERS + "个订单");
+        }
+        return R.success("处理完成", orderService.transitionOrders(orderTransition, orderNos));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.example.mall.module.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 秒杀下单结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleResultDTO {
+
+    public enum Status {
+        QUEUED,   // 排队中, 稍后通过 ticketId 查询
+        ACCEPTED, // 下单成功
+        SOLD_OUT, // 已售罄
+        REJECTED, // 排队人数已满, 直接拒绝
+        FAILED    // 下单失败 (地址/购物车等校验不通过)
+    }
+
+    private String ticketId;
+    private Status status;
+    private String orderNo;
+    private String message;
+}
@@ -0,0 +1,19 @@
+package com.example.mall.module.order.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 订单创建事件内容, 序列化后存入 order_outbox.payload
+ */
+@Data
+public class OrderCreatedEventDTO {
+    private Long orderId;
+    private String orderNo;
+    private Long userId;
+    // 下单时间 (毫秒), 超时取消据此计算截止时间
+    private Long placedAt;
+    // 商品ID -> 购买数量
+    private Map<Long, Integer> quantities;
+}
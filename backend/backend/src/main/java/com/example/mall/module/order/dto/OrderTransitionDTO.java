@@ -0,0 +1,10 @@
+package com.example.mall.module.order.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class OrderTransitionDTO {
+    private List<String> orderNos;
+}
@@ -0,0 +1,25 @@
+package com.example.mall.module.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量状态迁移中单个订单的结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderTransitionResultDTO {
+
+    public enum Result {
+        SUCCESS,     // 迁移成功
+        WRONG_STATE, // 订单当前状态不允许该操作
+        NOT_FOUND    // 订单不存在
+    }
+
+    private String orderNo;
+    private Result result;
+    // 处理后的订单状态, 订单不存在时为 null
+    private Integer status;
+}
@@ -4,8 +4,7 @@ import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
-import com.baomidou.mybatisplus.extension.handlers.JacksonTypeHandler;
-import com.example.mall.module.user.entity.Address; // [1] 引入Address类
+import com.example.mall.module.order.handler.ReceiverInfoTypeHandler;
 import lombok.Data;
 
 import java.math.BigDecimal;
@@ -24,8 +23,9 @@ public class Order {
     private Integer status;
 
     // [2] 将字段类型从 Map<String, Object> 修改为 Address
-    @TableField(typeHandler = JacksonTypeHandler.class)
-    private Address receiverInfo;
+    // 收货人快照延迟解析, 列表查询不读取该列
+    @TableField(typeHandler = ReceiverInfoTypeHandler.class)
+    private ReceiverInfo receiverInfo;
 
     private LocalDateTime paymentTime;
     private LocalDateTime shippingTime;
@@ -35,4 +35,8 @@ public class Order {
 
     @TableField(exist = false)
     private List<OrderItem> items;
+
+    // 订单明细总条数, 列表预览时 items 可能只包含其中一部分
+    @TableField(exist = false)
+    private Integer itemCount;
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.example.mall.module.order.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("order_outbox")
+public class OrderOutbox {
+
+    public static final String EVENT_ORDER_CREATED = "ORDER_CREATED";
+
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_PROCESSING = 1;
+    public static final int STATUS_DONE = 2;
+    public static final int STATUS_FAILED = 3;
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    private String eventType;
+    private Long aggregateId;
+    private String payload;
+    private Integer status;
+    private Integer attempts;
+    private LocalDateTime nextAttemptTime;
+    private String claimToken;
+    private String lastError;
+    private LocalDateTime createTime;
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,26 @@
+package com.example.mall.module.order.entity;
+
+import lombok.Getter;
+
+/**
+ * 订单状态机: 每个操作只允许从一个固定状态迁移到目标状态
+ * 订单状态(0:待付款, 1:已付款, 2:已发货, 3:已完成, 4:已取消)
+ */
+@Getter
+public enum OrderTransition {
+
+    PAY(0, 1, "支付"),
+    SHIP(1, 2, "发货"),
+    COMPLETE(2, 3, "确认收货"),
+    CANCEL(0, 4, "取消");
+
+    private final int from;
+    private final int to;
+    private final String description;
+
+    OrderTransition(int from, int to, String description) {
+        this.from = from;
+        this.to = to;
+        this.description = description;
+    }
+}
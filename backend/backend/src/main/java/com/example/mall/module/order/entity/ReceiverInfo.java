@@ -0,0 +1,72 @@
+package com.example.mall.module.order.entity;
+
+import com.example.mall.module.user.entity.Address;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.UncheckedIOException;
+
+/**
+ * 订单收货人快照 (receiver_info) 的延迟解析包装
+ * 从数据库读出时只保存原始 JSON, 第一次调用 get() 时才用共享的 ObjectReader 解析为 Address;
+ * 并发首次访问最多重复解析一次, 结果相同, 不需要加锁.
+ * 对外序列化时输出 Address 本身, 接口返回的结构不变.
+ */
+public class ReceiverInfo {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectReader READER = OBJECT_MAPPER.readerFor(Address.class);
+    private static final ObjectWriter WRITER = OBJECT_MAPPER.writerFor(Address.class);
+
+    private final String json;
+    private Address address;
+
+    private ReceiverInfo(String json, Address address) {
+        this.json = json;
+        this.address = address;
+    }
+
+    public static ReceiverInfo of(Address address) {
+        return new ReceiverInfo(null, address);
+    }
+
+    public static ReceiverInfo fromJson(String json) {
+        return new ReceiverInfo(json, null);
+    }
+
+    @JsonValue
+    public Address get() {
+        Address decoded = address;
+        if (decoded == null && json != null) {
+            try {
+                decoded = READER.readValue(json);
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException("收货人信息解析失败", e);
+            }
+            address = decoded;
+        }
+        return decoded;
+    }
+
+    /**
+     * 写库用的 JSON, 读出后未修改过的直接返回原文
+     */
+    public String toJson() {
+        if (json != null) {
+            return json;
+        }
+        try {
+            return WRITER.writeValueAsString(address);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("收货人信息序列化失败", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return json != null ? json : String.valueOf(address);
+    }
+}
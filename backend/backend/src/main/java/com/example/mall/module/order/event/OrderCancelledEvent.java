@@ -0,0 +1,15 @@
+package com.example.mall.module.order.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * 进程内订单取消事件 (用户取消/批量取消/超时取消), 在取消事务中发布, 携带被取消订单的商品ID -> 数量汇总
+ */
+@Getter
+@AllArgsConstructor
+public class OrderCancelledEvent {
+    private final Map<Long, Integer> quantities;
+}
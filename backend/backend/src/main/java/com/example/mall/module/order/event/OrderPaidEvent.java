@@ -0,0 +1,15 @@
+package com.example.mall.module.order.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * 进程内订单支付事件, 在支付事务中发布, 携带本次支付的商品ID -> 数量汇总
+ */
+@Getter
+@AllArgsConstructor
+public class OrderPaidEvent {
+    private final Map<Long, Integer> quantities;
+}
@@ -0,0 +1,17 @@
+package com.example.mall.module.order.event;
+
+import com.example.mall.module.order.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 进程内订单创建事件, 未启用发件箱时在下单事务中发布;
+ * 监听方使用 @TransactionalEventListener 在事务提交后处理
+ */
+@Getter
+@AllArgsConstructor
+public class OrderPlacedEvent {
+    private final List<Order> orders;
+}
@@ -0,0 +1,40 @@
+package com.example.mall.module.order.handler;
+
+import com.example.mall.module.order.entity.ReceiverInfo;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * receiver_info 列的类型处理器: 读取时不解析 JSON, 交给 ReceiverInfo 按需解析
+ */
+public class ReceiverInfoTypeHandler extends BaseTypeHandler<ReceiverInfo> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, ReceiverInfo parameter, JdbcType jdbcType) throws SQLException {
+        ps.setString(i, parameter.toJson());
+    }
+
+    @Override
+    public ReceiverInfo getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return wrap(rs.getString(columnName));
+    }
+
+    @Override
+    public ReceiverInfo getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return wrap(rs.getString(columnIndex));
+    }
+
+    @Override
+    public ReceiverInfo getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return wrap(cs.getString(columnIndex));
+    }
+
+    private ReceiverInfo wrap(String json) {
+        return json == null ? null : ReceiverInfo.fromJson(json);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.mall.module.order.mapper;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单归档: 在同一事务中把一批订单及明细从热表搬到归档表
+ */
+public interface OrderArchiveMapper {
+
+    /**
+     * 锁定一批可归档的订单 (已完成/已取消, 且最后更新时间早于 before)
+     */
+    List<Long> selectArchivableIdsForUpdate(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    int copyOrderItems(@Param("orderIds") List<Long> orderIds);
+
+    int copyOrders(@Param("orderIds") List<Long> orderIds);
+
+    int deleteOrderItems(@Param("orderIds") List<Long> orderIds);
+
+    int deleteOrders(@Param("orderIds") List<Long> orderIds);
+}
@@ -2,6 +2,14 @@ package com.example.mall.module.order.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.mall.module.order.entity.OrderItem;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 public interface OrderItemMapper extends BaseMapper<OrderItem> {
-}
\ No newline at end of file
+
+    /**
+     * 多行 INSERT 批量写入订单明细
+     */
+    int insertBatch(@Param("items") List<OrderItem> items);
+}
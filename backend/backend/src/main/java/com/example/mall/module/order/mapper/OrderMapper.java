@@ -2,13 +2,44 @@ package com.example.mall.module.order.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.mall.module.order.entity.Order;
-import com.example.mall.module.product.entity.Product;
+import com.example.mall.module.product.dto.StockDeductionDTO;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
+import java.util.List;
+
 // 注解已移除，因为SQL实现在XML中
 public interface OrderMapper extends BaseMapper<Order> {
 
-    Product selectProductForUpdate(@Param("productId") Long productId);
+    /**
+     * 锁定仍处于待付款状态的订单, 返回其ID
+     */
+    List<Long> selectPendingIdsForUpdate(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * 单个订单的条件状态迁移, 只更新状态和对应的时间字段; userId 为空时不校验归属
+     * @return 1 表示迁移成功, 0 表示订单不存在或状态不符
+     */
+    int updateStatus(@Param("orderNo") String orderNo, @Param("userId") Long userId,
+                     @Param("from") int from, @Param("to") int to);
+
+    /**
+     * 批量条件状态迁移
+     */
+    int updateStatusBatch(@Param("orderIds") Collection<Long> orderIds, @Param("from") int from, @Param("to") int to);
+
+    /**
+     * 按订单号锁定一批订单, 只返回 id/order_no/status
+     */
+    List<Order> selectStatusForUpdate(@Param("orderNos") Collection<String> orderNos);
+
+    /**
+     * 按商品汇总一批订单的购买数量
+     */
+    List<StockDeductionDTO> sumItemQuantities(@Param("orderIds") Collection<Long> orderIds);
 
-    int decreaseStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+    /**
+     * 按商品汇总单个订单的购买数量
+     */
+    List<StockDeductionDTO> sumItemQuantitiesByOrderNo(@Param("orderNo") String orderNo);
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.example.mall.module.order.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.mall.module.order.entity.OrderOutbox;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OrderOutboxMapper extends BaseMapper<OrderOutbox> {
+
+    /**
+     * 多行 INSERT 批量写入事件
+     */
+    int insertBatch(@Param("events") List<OrderOutbox> events);
+
+    /**
+     * 认领一批待投递事件 (含租约过期的投递中事件), 多实例部署时不会重复认领
+     */
+    int claimBatch(@Param("claimToken") String claimToken,
+                   @Param("limit") int limit,
+                   @Param("leaseSeconds") int leaseSeconds);
+
+    List<OrderOutbox> selectByClaimToken(@Param("claimToken") String claimToken);
+
+    int markDone(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 记录一次投递失败, 超过最大次数后标记为失败, 否则按退避时间重新排队
+     */
+    int markRetry(@Param("id") Long id,
+                  @Param("error") String error,
+                  @Param("maxAttempts") int maxAttempts,
+                  @Param("backoffSeconds") int backoffSeconds);
+}
@@ -0,0 +1,25 @@
+package com.example.mall.module.order.service;
+
+import com.example.mall.module.order.dto.FlashSaleResultDTO;
+import com.example.mall.module.order.dto.OrderCreateDTO;
+
+/**
+ * 秒杀下单服务: 每个秒杀商品一个有界队列, 由单个消费者线程串行下单
+ */
+public interface FlashSaleService {
+
+    /**
+     * 商品是否为秒杀商品
+     */
+    boolean isFlashSaleProduct(Long productId);
+
+    /**
+     * 提交秒杀下单请求, 在超时时间内同步等待结果, 超时则返回 QUEUED
+     */
+    FlashSaleResultDTO submit(Long userId, Long productId, OrderCreateDTO createDTO);
+
+    /**
+     * 根据 ticketId 查询排队结果
+     */
+    FlashSaleResultDTO getResult(Long userId, String ticketId);
+}
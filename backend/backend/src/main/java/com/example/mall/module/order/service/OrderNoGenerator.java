@@ -0,0 +1,12 @@
+package com.example.mall.module.order.service;
+
+/**
+ * 订单号生成器
+ */
+public interface OrderNoGenerator {
+
+    /**
+     * 生成一个全局唯一的订单号
+     */
+    String nextOrderNo();
+}
@@ -0,0 +1,16 @@
+package com.example.mall.module.order.service;
+
+import com.example.mall.module.order.dto.OrderCreatedEventDTO;
+
+/**
+ * 订单事件处理器, 由发件箱投递任务调用
+ * 投递语义为至少一次, 同一事件可能被处理多次, 实现必须幂等
+ */
+public interface OrderOutboxHandler {
+
+    /**
+     * 处理订单创建事件
+     * @param eventId order_outbox.id, 可用于去重
+     */
+    void onOrderCreated(Long eventId, OrderCreatedEventDTO event);
+}
@@ -3,20 +3,35 @@ package com.example.mall.module.order.service;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.example.mall.module.order.dto.OrderCreateDTO;
+import com.example.mall.module.order.dto.OrderTransitionResultDTO;
 import com.example.mall.module.order.entity.Order;
+import com.example.mall.module.order.entity.OrderTransition;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface OrderService extends IService<Order> {
 
     /**
-     * 创建订单
+     * 创建订单; 写回模式下调用方需在调用前 (事务外) 执行 CartService.flush
      */
     Order createOrder(Long userId, OrderCreateDTO createDTO);
 
+    /**
+     * 秒杀队列消费者下单, 购物车项只能是该秒杀商品; 写回模式下调用方需在调用前 (事务外) 执行 CartService.flush
+     */
+    Order createFlashSaleOrder(Long userId, Long productId, OrderCreateDTO createDTO);
+
     /**
      * 分页查询用户订单
      */
     Page<Order> listUserOrders(Long userId, Page<Order> page, Integer status);
 
+    /**
+     * 分页查询用户订单, 可选附带每个订单的前 itemLimit 条明细 (一次 IN 查询批量加载)
+     */
+    Page<Order> listUserOrders(Long userId, Page<Order> page, Integer status, boolean withItems, int itemLimit);
+
     /**
      * 根据订单号获取订单详情
      */
@@ -26,4 +41,26 @@ public interface OrderService extends IService<Order> {
      * (模拟)支付订单
      */
     void payOrder(Long userId, String orderNo);
+
+    /**
+     * 用户取消待付款订单并归还库存
+     */
+    void cancelOrder(Long userId, String orderNo);
+
+    /**
+     * 用户确认收货
+     */
+    void confirmReceipt(Long userId, String orderNo);
+
+    /**
+     * 对一批订单执行同一个状态迁移 (支付回调/仓库发货等), 分批在各自的事务中完成
+     * @return 每个订单号的处理结果, 顺序与入参一致 (重复的订单号只保留一个)
+     */
+    List<OrderTransitionResultDTO> transitionOrders(OrderTransition transition, List<String> orderNos);
+
+    /**
+     * 批量取消超时未支付的订单并归还库存, 已支付/已取消的订单会被跳过
+     * @return 实际取消的订单数
+     */
+    int cancelExpiredOrders(Collection<Long> orderIds);
 }
\ No newline at end of file
@@ -0,0 +1,222 @@
+package com.example.mall.module.order.service.impl;
+
+import com.example.mall.common.exception.CustomException;
+import com.example.mall.common.exception.StockShortageException;
+import com.example.mall.module.cart.service.CartService;
+import com.example.mall.module.order.dto.FlashSaleResultDTO;
+import com.example.mall.module.order.dto.FlashSaleResultDTO.Status;
+import com.example.mall.module.order.dto.OrderCreateDTO;
+import com.example.mall.module.order.entity.Order;
+import com.example.mall.module.order.service.FlashSaleService;
+import com.example.mall.module.order.service.OrderService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Service
+public class FlashSaleServiceImpl implements FlashSaleService {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Value("${app.flash-sale.product-ids:}")
+    private Set<Long> productIds;
+
+    @Value("${app.flash-sale.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.flash-sale.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.flash-sale.wait-timeout-ms:2000}")
+    private long waitTimeoutMs;
+
+    @Value("${app.flash-sale.sold-out-hold-ms:5000}")
+    private long soldOutHoldMs;
+
+    @Value("${app.flash-sale.ticket-ttl-ms:600000}")
+    private long ticketTtlMs;
+
+    private final Map<Long, ProductLane> lanes = new HashMap<>();
+    private final ConcurrentHashMap<String, Ticket> tickets = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        for (Long productId : productIds) {
+            ProductLane lane = new ProductLane(productId, new ArrayBlockingQueue<>(queueCapacity));
+            lanes.put(productId, lane);
+            lane.consumer.start();
+        }
+        if (!lanes.isEmpty()) {
+            log.info("【秒杀】已为商品 {} 启动排队消费者, 队列容量: {}", lanes.keySet(), queueCapacity);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        lanes.values().forEach(lane -> lane.consumer.interrupt());
+    }
+
+    @Override
+    public boolean isFlashSaleProduct(Long productId) {
+        return lanes.containsKey(productId);
+    }
+
+    @Override
+    public FlashSaleResultDTO submit(Long userId, Long productId, OrderCreateDTO createDTO) {
+        ProductLane lane = lanes.get(productId);
+        if (lane == null) {
+            throw new CustomException("该商品不在秒杀活动中");
+        }
+
+        // 售罄和排队已满的判断都在内存中完成, 不访问数据库; 购物车项由消费者下单时在事务内校验
+        if (CollectionUtils.isEmpty(createDTO.getCartIds())) {
+            throw new CustomException("请选择要结算的商品");
+        }
+        String ticketId = UUID.randomUUID().toString().replace("-", "");
+        if (lane.isSoldOut()) {
+            return new FlashSaleResultDTO(ticketId, Status.SOLD_OUT, null, "商品已售罄");
+        }
+        Ticket ticket = new Ticket(ticketId, userId, createDTO);
+        if (!lane.queue.offer(ticket)) {
+            log.warn("【秒杀】商品'{}'排队已满, 拒绝用户'{}'", productId, userId);
+            return new FlashSaleResultDTO(ticketId, Status.REJECTED, null, "当前排队人数过多，请稍后再试");
+        }
+        tickets.put(ticketId, ticket);
+        log.info("【秒杀】用户'{}'进入商品'{}'的队列, ticketId={}", userId, productId, ticketId);
+
+        try {
+            return ticket.future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return new FlashSaleResultDTO(ticketId, Status.QUEUED, null, "排队中");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new FlashSaleResultDTO(ticketId, Status.QUEUED, null, "排队中");
+        } catch (Exception e) {
+            return new FlashSaleResultDTO(ticketId, Status.FAILED, null, e.getMessage());
+        }
+    }
+
+    @Override
+    public FlashSaleResultDTO getResult(Long userId, String ticketId) {
+        Ticket ticket = tickets.get(ticketId);
+        if (ticket == null || !ticket.userId.equals(userId)) {
+            throw new CustomException("排队记录不存在或已过期");
+        }
+        FlashSaleResultDTO result = ticket.future.getNow(null);
+        return result != null ? result : new FlashSaleResultDTO(ticketId, Status.QUEUED, null, "排队中");
+    }
+
+    /**
+     * 清理过期的排队记录
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpiredTickets() {
+        long deadline = System.currentTimeMillis() - ticketTtlMs;
+        tickets.values().removeIf(ticket -> ticket.future.isDone() && ticket.createdAt < deadline);
+    }
+
+    private static final class Ticket {
+        private final String ticketId;
+        private final Long userId;
+        private final OrderCreateDTO createDTO;
+        private final long createdAt = System.currentTimeMillis();
+        private final CompletableFuture<FlashSaleResultDTO> future = new CompletableFuture<>();
+
+        private Ticket(String ticketId, Long userId, OrderCreateDTO createDTO) {
+            this.ticketId = ticketId;
+            this.userId = userId;
+            this.createDTO = createDTO;
+        }
+
+        private void complete(Status status, String orderNo, String message) {
+            future.complete(new FlashSaleResultDTO(ticketId, status, orderNo, message));
+        }
+    }
+
+    /**
+     * 单个秒杀商品的队列与唯一的消费者线程, 同一商品的订单串行写入, 不再争抢行锁
+     */
+    private final class ProductLane {
+        private final Long productId;
+        private final BlockingQueue<Ticket> queue;
+        private final Thread consumer;
+        // 售罄时间戳, 0表示未售罄; 售罄后一段时间内直接拒绝, 过后放行一个请求重新确认库存
+        private volatile long soldOutAt;
+
+        private ProductLane(Long productId, BlockingQueue<Ticket> queue) {
+            this.productId = productId;
+            this.queue = queue;
+            this.consumer = new Thread(this::drain, "flash-sale-" + productId);
+            this.consumer.setDaemon(true);
+        }
+
+        private boolean isSoldOut() {
+            long at = soldOutAt;
+            return at != 0 && System.currentTimeMillis() - at < soldOutHoldMs;
+        }
+
+        private void drain() {
+            List<Ticket> batch = new ArrayList<>(batchSize);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, batchSize - 1);
+                    log.info("【秒杀】商品'{}'开始处理一批请求, 共{}个", productId, batch.size());
+                    batch.forEach(this::process);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void process(Ticket ticket) {
+            if (isSoldOut()) {
+                ticket.complete(Status.SOLD_OUT, null, "商品已售罄");
+                return;
+            }
+            try {
+                // 写回模式下先把购物车修改落库, 在下单事务开启之前完成
+                cartService.flush(ticket.userId);
+                Order order = orderService.createFlashSaleOrder(ticket.userId, productId, ticket.createDTO);
+                soldOutAt = 0;
+                ticket.complete(Status.ACCEPTED, order.getOrderNo(), "下单成功");
+            } catch (StockShortageException e) {
+                boolean soldOut = e.getShortages().stream()
+                        .anyMatch(s -> productId.equals(s.getProductId()) && s.getAvailable() <= 0);
+                if (soldOut) {
+                    soldOutAt = System.currentTimeMillis();
+                    log.info("【秒杀】商品'{}'已售罄", productId);
+                }
+                ticket.complete(Status.SOLD_OUT, null, e.getMessage());
+            } catch (Exception e) {
+                log.error("【秒杀】用户'{}'下单失败: {}", ticket.userId, e.getMessage());
+                ticket.complete(Status.FAILED, null, e.getMessage());
+            }
+        }
+    }
+}
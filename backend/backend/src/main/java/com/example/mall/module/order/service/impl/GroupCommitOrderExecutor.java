@@ -0,0 +1,264 @@
+package com.example.mall.module.order.service.impl;
+
+import com.example.mall.common.exception.CustomException;
+import com.example.mall.module.cart.service.CartService;
+import com.example.mall.module.order.dto.OrderCreateDTO;
+import com.example.mall.module.order.entity.Order;
+import com.example.mall.module.product.service.StockService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 下单组提交 (app.order.group-commit.enabled=true 时启用)
+ * 在一个短窗口内收集并发的下单请求, 放进同一个数据库事务中执行, 多个订单共享一次提交;
+ * 每个订单在自己的保存点内完成校验和扣库存, 单个订单失败只回滚到保存点, 不影响同批其他订单.
+ * 整批订单的明细和购物车清理分别合并为一条语句. 同批中购物车项重复的请求直接拒绝, 整批的购物车行和商品行在开始时统一按序加锁.
+ */
+@Slf4j
+@Component
+public class GroupCommitOrderExecutor {
+
+    @Autowired
+    private OrderServiceImpl orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.order.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.order.group-commit.window-ms:5}")
+    private long windowMs;
+
+    @Value("${app.order.group-commit.max-batch:32}")
+    private int maxBatch;
+
+    @Value("${app.order.group-commit.queue-capacity:4096}")
+    private int queueCapacity;
+
+    @Value("${app.order.group-commit.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private BlockingQueue<Request> queue;
+    private Thread committer;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        committer = new Thread(this::run, "order-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+        log.info("【组提交】已启用, 窗口: {}ms, 每批最多: {}", windowMs, maxBatch);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (committer != null) {
+            committer.interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 提交下单请求并等待所在批次提交完成
+     */
+    public Order submit(Long userId, OrderCreateDTO createDTO) {
+        Request request = new Request(userId, createDTO);
+        if (!queue.offer(request)) {
+            throw new CustomException("下单人数过多，请稍后再试");
+        }
+        try {
+            return request.future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new CustomException("下单处理超时，请稍后在订单列表中查看");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException("下单请求被中断");
+        }
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(maxBatch);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+                while (batch.size() < maxBatch) {
+                    Request next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                batch.clear();
+            }
+        }
+        // 停机时未处理的请求直接失败, 避免调用方一直等待
+        Request pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new CustomException("服务正在停止，请稍后重试"));
+        }
+    }
+
+    private void commit(List<Request> batch) {
+        log.info("【组提交】开始处理一批下单请求, 共{}个", batch.size());
+        List<Request> accepted = flushCarts(rejectOverlapping(batch));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                lockAll(accepted);
+                List<Order> orders = new ArrayList<>(accepted.size());
+                List<List<Long>> cartIds = new ArrayList<>(accepted.size());
+                for (Request request : accepted) {
+                    Object savepoint = status.createSavepoint();
+                    try {
+                        request.order = orderService.prepareOrder(request.userId, request.createDTO);
+                        status.releaseSavepoint(savepoint);
+                        orders.add(request.order);
+                        cartIds.add(request.createDTO.getCartIds());
+                    } catch (RuntimeException e) {
+                        status.rollbackToSavepoint(savepoint);
+                        request.error = e;
+                        log.warn("【组提交】用户'{}'的订单回滚到保存点: {}", request.userId, e.getMessage());
+                    }
+                }
+                if (!orders.isEmpty()) {
+                    orderService.persistOrderDetails(orders, cartIds);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("【组提交】整批事务提交失败, 共{}个请求", batch.size(), e);
+            batch.forEach(request -> request.future.completeExceptionally(request.error != null ? request.error : e));
+            return;
+        }
+
+        // 提交成功后再逐个通知调用方
+        int succeeded = 0;
+        for (Request request : batch) {
+            if (request.error != null) {
+                request.future.completeExceptionally(request.error);
+            } else {
+                request.future.complete(request.order);
+                succeeded++;
+            }
+        }
+        log.info("【组提交】批次提交完成, 成功{}个, 失败{}个", succeeded, batch.size() - succeeded);
+    }
+
+    /**
+     * 同一批中重复提交的购物车项 (如双击下单) 只保留最先到的请求, 后到的直接失败;
+     * 否则它们在同一个事务里都能读到尚未删除的购物车行, 同一批商品会生成两个订单
+     */
+    private List<Request> rejectOverlapping(List<Request> batch) {
+        Set<Long> claimed = new HashSet<>();
+        List<Request> accepted = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            List<Long> cartIds = request.createDTO.getCartIds();
+            if (cartIds != null && cartIds.stream().anyMatch(claimed::contains)) {
+                request.error = new CustomException("购物车商品正在结算中, 请勿重复提交");
+                log.warn("【组提交】用户'{}'的购物车项与同批请求重复: {}", request.userId, cartIds);
+                continue;
+            }
+            if (cartIds != null) {
+                claimed.addAll(cartIds);
+            }
+            accepted.add(request);
+        }
+        return accepted;
+    }
+
+    /**
+     * 写回式购物车在开启批次事务前落库, 批次事务持有购物车行锁后再写回会互相等待; 落库失败的用户本批请求直接失败
+     */
+    private List<Request> flushCarts(List<Request> requests) {
+        Set<Long> failedUsers = new HashSet<>();
+        requests.stream().map(request -> request.userId).distinct().forEach(userId -> {
+            try {
+                cartService.flush(userId);
+            } catch (RuntimeException e) {
+                log.error("【组提交】用户'{}'的购物车写回失败: {}", userId, e.getMessage());
+                failedUsers.add(userId);
+            }
+        });
+        if (failedUsers.isEmpty()) {
+            return requests;
+        }
+        List<Request> flushed = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            if (failedUsers.contains(request.userId)) {
+                request.error = new CustomException("购物车同步失败，请稍后重试");
+            } else {
+                flushed.add(request);
+            }
+        }
+        return flushed;
+    }
+
+    /**
+     * 整批订单开始前按统一顺序加锁: 先按ID升序锁全部购物车行, 再按ID升序锁全部商品行.
+     * 各订单随后在保存点内再次加锁时已持有这些锁; 与其他批次和单独下单 (同样先购物车后商品、各自升序) 不会形成环路等待,
+     * 避免死锁导致整批事务回滚
+     */
+    private void lockAll(List<Request> accepted) {
+        Set<Long> allCartIds = new HashSet<>();
+        accepted.forEach(request -> {
+            if (request.createDTO.getCartIds() != null) {
+                allCartIds.addAll(request.createDTO.getCartIds());
+            }
+        });
+        Set<Long> productIds = new HashSet<>();
+        cartService.listByIdsForUpdate(allCartIds).forEach(cart -> productIds.add(cart.getProductId()));
+        stockService.lockProducts(productIds);
+    }
+
+    private static final class Request {
+        private final Long userId;
+        private final OrderCreateDTO createDTO;
+        private final CompletableFuture<Order> future = new CompletableFuture<>();
+        private Order order;
+        private RuntimeException error;
+
+        private Request(Long userId, OrderCreateDTO createDTO) {
+            this.userId = userId;
+            this.createDTO = createDTO;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.mall.module.order.service.impl;
+
+import com.example.mall.module.order.dto.OrderCreatedEventDTO;
+import com.example.mall.module.order.service.OrderOutboxHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 下单通知 (目前仅记录日志, 接入短信/推送时在此实现, 以 eventId 去重)
+ */
+@Slf4j
+@Component
+public class NotificationOutboxHandler implements OrderOutboxHandler {
+
+    @Override
+    public void onOrderCreated(Long eventId, OrderCreatedEventDTO event) {
+        log.info("【发件箱】通知用户'{}': 订单'{}'已创建, 事件ID: {}", event.getUserId(), event.getOrderNo(), eventId);
+    }
+}
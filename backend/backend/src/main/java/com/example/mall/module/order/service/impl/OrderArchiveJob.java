@@ -0,0 +1,78 @@
+package com.example.mall.module.order.service.impl;
+
+import com.example.mall.module.order.mapper.OrderArchiveMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单冷热分离 (app.order.archive.enabled=true 时启用)
+ * 定时把超过保留期的已完成/已取消订单搬到 orders_archive / order_items_archive,
+ * 每批一个短事务, 批次之间暂停一段时间, 避免长时间持锁和主从延迟.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.order.archive.enabled", havingValue = "true")
+public class OrderArchiveJob {
+
+    @Autowired
+    private OrderArchiveMapper orderArchiveMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.order.archive.age-days:90}")
+    private int ageDays;
+
+    @Value("${app.order.archive.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.order.archive.throttle-ms:100}")
+    private long throttleMs;
+
+    @Value("${app.order.archive.max-batches-per-run:500}")
+    private int maxBatchesPerRun;
+
+    @Scheduled(fixedDelayString = "${app.order.archive.interval-ms:3600000}")
+    public void archive() {
+        LocalDateTime before = LocalDateTime.now().minusDays(ageDays);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int archived = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer moved = transactionTemplate.execute(status -> archiveBatch(before));
+            archived += moved;
+            if (moved < batchSize) {
+                break;
+            }
+            try {
+                Thread.sleep(throttleMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (archived > 0) {
+            log.info("【订单归档】本轮归档{}个早于{}的订单", archived, before);
+        }
+    }
+
+    private int archiveBatch(LocalDateTime before) {
+        List<Long> orderIds = orderArchiveMapper.selectArchivableIdsForUpdate(before, batchSize);
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        orderArchiveMapper.copyOrderItems(orderIds);
+        orderArchiveMapper.copyOrders(orderIds);
+        orderArchiveMapper.deleteOrderItems(orderIds);
+        orderArchiveMapper.deleteOrders(orderIds);
+        return orderIds.size();
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.mall.module.order.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.example.mall.common.util.HierarchicalTimingWheel;
+import com.example.mall.module.order.dto.OrderCreatedEventDTO;
+import com.example.mall.module.order.entity.Order;
+import com.example.mall.module.order.event.OrderPlacedEvent;
+import com.example.mall.module.order.mapper.OrderMapper;
+import com.example.mall.module.order.service.OrderOutboxHandler;
+import com.example.mall.module.order.service.OrderService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 未支付订单超时取消 (app.order.expiry.enabled=true 时启用)
+ * 每个新订单在事务提交后 (启用发件箱时由发件箱投递) 放入分层时间轮, 到期的订单按批取消并归还库存;
+ * 每次推进只处理到期的格子, 不再定时全表扫描待付款订单.
+ * 时间轮只由定时任务线程访问, 其他线程通过无锁队列提交.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.order.expiry.enabled", havingValue = "true")
+public class OrderExpiryScheduler implements OrderOutboxHandler {
+
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Value("${app.order.expiry.timeout-minutes:30}")
+    private long timeoutMinutes;
+
+    @Value("${app.order.expiry.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${app.order.expiry.wheel-size:512}")
+    private int wheelSize;
+
+    @Value("${app.order.expiry.batch-size:500}")
+    private int batchSize;
+
+    private HierarchicalTimingWheel<Long> wheel;
+    private final ConcurrentLinkedQueue<Pending> incoming = new ConcurrentLinkedQueue<>();
+
+    @PostConstruct
+    public void init() {
+        wheel = new HierarchicalTimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+        log.info("【订单超时】已启用, 超时: {}分钟, 时间轮: {}ms x {}", timeoutMinutes, tickMs, wheelSize);
+    }
+
+    /**
+     * 启动时按ID分页加载所有待付款订单, 重建时间轮
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long lastId = 0;
+        int loaded = 0;
+        List<Order> page;
+        do {
+            page = orderMapper.selectList(new LambdaQueryWrapper<Order>()
+                    .select(Order::getId, Order::getCreateTime)
+                    .eq(Order::getStatus, 0)
+                    .gt(Order::getId, lastId)
+                    .orderByAsc(Order::getId)
+                    .last("LIMIT " + REBUILD_PAGE_SIZE));
+            for (Order order : page) {
+                incoming.add(new Pending(order.getId(), deadlineOf(order.getCreateTime())));
+                lastId = order.getId();
+            }
+            loaded += page.size();
+        } while (page.size() == REBUILD_PAGE_SIZE);
+        log.info("【订单超时】从数据库重建时间轮, 共{}个待付款订单", loaded);
+    }
+
+    /**
+     * 下单事务提交后登记超时时间, 回滚的订单不会进入时间轮
+     */
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(timeoutMinutes) + tickMs;
+        event.getOrders().forEach(order -> incoming.add(new Pending(order.getId(), deadline)));
+    }
+
+    /**
+     * 启用发件箱时按下单时间登记超时; 重复投递只会多登记一次, 取消时已处理的订单会被条件更新跳过
+     */
+    @Override
+    public void onOrderCreated(Long eventId, OrderCreatedEventDTO event) {
+        long placedAt = event.getPlacedAt() != null ? event.getPlacedAt() : System.currentTimeMillis();
+        long deadline = placedAt + TimeUnit.MINUTES.toMillis(timeoutMinutes) + tickMs;
+        incoming.add(new Pending(event.getOrderId(), deadline));
+    }
+
+    @Scheduled(fixedDelayString = "${app.order.expiry.tick-ms:1000}")
+    public void tick() {
+        Pending pending;
+        while ((pending = incoming.poll()) != null) {
+            wheel.schedule(pending.orderId, pending.deadlineMs);
+        }
+        List<Long> expired = new ArrayList<>();
+        wheel.advanceTo(System.currentTimeMillis(), expired::add);
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            List<Long> chunk = expired.subList(from, Math.min(from + batchSize, expired.size()));
+            try {
+                orderService.cancelExpiredOrders(chunk);
+            } catch (Exception e) {
+                // 取消失败的订单下一轮重试, 已支付的订单在取消时会被条件更新跳过
+                log.error("【订单超时】取消{}个超时订单失败, 稍后重试: {}", chunk.size(), e.getMessage());
+                long retryAt = System.currentTimeMillis() + tickMs;
+                chunk.forEach(orderId -> incoming.add(new Pending(orderId, retryAt)));
+            }
+        }
+    }
+
+    /**
+     * 截止时间多加一格, 时间轮最多提前一格到期, 保证订单不会被提前取消
+     */
+    private long deadlineOf(LocalDateTime createTime) {
+        long createdAt = createTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return createdAt + TimeUnit.MINUTES.toMillis(timeoutMinutes) + tickMs;
+    }
+
+    private record Pending(Long orderId, long deadlineMs) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.mall.module.order.service.impl;
+
+import com.example.mall.module.order.dto.OrderCreatedEventDTO;
+import com.example.mall.module.order.entity.OrderOutbox;
+import com.example.mall.module.order.mapper.OrderOutboxMapper;
+import com.example.mall.module.order.service.OrderOutboxHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 发件箱投递任务 (app.outbox.enabled=true 时启用)
+ * 定时认领一批待投递事件, 依次交给所有 OrderOutboxHandler 处理;
+ * 全部处理器成功才标记完成, 否则按退避时间重试, 超过最大次数标记为失败.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.outbox.enabled", havingValue = "true")
+public class OrderOutboxDispatcher {
+
+    @Autowired
+    private OrderOutboxMapper orderOutboxMapper;
+
+    @Autowired
+    private List<OrderOutboxHandler> handlers;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.backoff-seconds:5}")
+    private int backoffSeconds;
+
+    @Value("${app.outbox.lease-seconds:60}")
+    private int leaseSeconds;
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        int claimed;
+        do {
+            claimed = dispatchBatch();
+        } while (claimed == batchSize);
+    }
+
+    private int dispatchBatch() {
+        String claimToken = UUID.randomUUID().toString().replace("-", "");
+        int claimed = orderOutboxMapper.claimBatch(claimToken, batchSize, leaseSeconds);
+        if (claimed == 0) {
+            return 0;
+        }
+        List<OrderOutbox> events = orderOutboxMapper.selectByClaimToken(claimToken);
+        List<Long> done = new ArrayList<>(events.size());
+        for (OrderOutbox event : events) {
+            try {
+                deliver(event);
+                done.add(event.getId());
+            } catch (Exception e) {
+                log.error("【发件箱】事件'{}'投递失败, 第{}次: {}", event.getId(), event.getAttempts() + 1, e.getMessage());
+                orderOutboxMapper.markRetry(event.getId(), String.valueOf(e.getMessage()), maxAttempts, backoffSeconds);
+            }
+        }
+        if (!done.isEmpty()) {
+            orderOutboxMapper.markDone(done);
+        }
+        log.info("【发件箱】本批认领{}个事件, 投递成功{}个", events.size(), done.size());
+        return claimed;
+    }
+
+    private void deliver(OrderOutbox event) throws Exception {
+        if (!OrderOutbox.EVENT_ORDER_CREATED.equals(event.getEventType())) {
+            log.warn("【发件箱】未知事件类型'{}', 忽略", event.getEventType());
+            return;
+        }
+        OrderCreatedEventDTO payload = objectMapper.readValue(event.getPayload(), OrderCreatedEventDTO.class);
+        for (OrderOutboxHandler handler : handlers) {
+            handler.onOrderCreated(event.getId(), payload);
+        }
+    }
+}
@@ -1,42 +1,71 @@
 package com.example.mall.module.order.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.example.mall.common.exception.CustomException;
+import com.example.mall.common.util.ArchiveContext;
 import com.example.mall.module.cart.entity.Cart;
 import com.example.mall.module.cart.service.CartService;
 import com.example.mall.module.order.dto.OrderCreateDTO;
+import com.example.mall.module.order.dto.OrderCreatedEventDTO;
+import com.example.mall.module.order.dto.OrderTransitionResultDTO;
 import com.example.mall.module.order.entity.Order;
 import com.example.mall.module.order.entity.OrderItem;
+import com.example.mall.module.order.entity.OrderOutbox;
+import com.example.mall.module.order.entity.OrderTransition;
+import com.example.mall.module.order.entity.ReceiverInfo;
+import com.example.mall.module.order.event.OrderCancelledEvent;
+import com.example.mall.module.order.event.OrderPaidEvent;
+import com.example.mall.module.order.event.OrderPlacedEvent;
+import com.example.mall.module.order.mapper.OrderItemMapper;
 import com.example.mall.module.order.mapper.OrderMapper;
+import com.example.mall.module.order.mapper.OrderOutboxMapper;
 import com.example.mall.module.order.service.OrderItemService;
+import com.example.mall.module.order.service.OrderNoGenerator;
+import com.example.mall.module.order.service.FlashSaleService;
 import com.example.mall.module.order.service.OrderService;
+import com.example.mall.module.product.dto.StockDeductionDTO;
 import com.example.mall.module.product.entity.Product;
-import com.example.mall.module.product.service.ProductService;
+import com.example.mall.module.product.service.StockService;
 import com.example.mall.module.user.entity.Address;
 import com.example.mall.module.user.service.AddressService;
-// import com.fasterxml.jackson.core.type.TypeReference; // 不再需要
-// import com.fasterxml.jackson.databind.ObjectMapper; // 不再需要
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-// import java.util.Map; // 不再需要
-import java.util.Random;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 @Slf4j
 @Service
 public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements OrderService {
 
+    // 只有已完成/已取消的订单会被归档
+    private static final Set<Integer> ARCHIVED_STATUSES = Set.of(3, 4);
+    // 订单列表不展示收货人信息, 不读取 receiver_info 列
+    private static final Predicate<TableFieldInfo> LIST_COLUMNS = field -> !"receiver_info".equals(field.getColumn());
+
     @Autowired
     private CartService cartService;
     @Autowired
@@ -44,92 +73,293 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     @Autowired
     private OrderItemService orderItemService;
     @Autowired
+    private OrderItemMapper orderItemMapper;
+    @Autowired
     private OrderMapper orderMapper;
     @Autowired
-    private ProductService productService;
+    private StockService stockService;
+    @Autowired
+    private OrderNoGenerator orderNoGenerator;
+    @Autowired
+    private OrderOutboxMapper orderOutboxMapper;
+    @Autowired
+    private ObjectMapper objectMapper;
+    // 秒杀服务依赖本服务下单, 延迟注入避免循环依赖
+    @Lazy
+    @Autowired
+    private FlashSaleService flashSaleService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.outbox.enabled:false}")
+    private boolean outboxEnabled;
+
+    @Value("${app.order.transition.batch-size:500}")
+    private int transitionBatchSize;
+
+    @Value("${app.order.archive.enabled:false}")
+    private boolean archiveEnabled;
 
     @Override
     @Transactional
     public Order createOrder(Long userId, OrderCreateDTO createDTO) {
         log.info("【业务处理-开始】用户'{}'创建订单, DTO: {}", userId, createDTO);
+        Order order = prepareOrder(userId, createDTO);
+        persistOrderDetails(Collections.singletonList(order), Collections.singletonList(createDTO.getCartIds()));
+        log.info("【业务处理-结束】订单'{}'创建成功", order.getOrderNo());
+        return order;
+    }
+
+    @Override
+    @Transactional
+    public Order createFlashSaleOrder(Long userId, Long productId, OrderCreateDTO createDTO) {
+        log.info("【业务处理-开始】用户'{}'创建秒杀订单, 商品: {}, DTO: {}", userId, productId, createDTO);
+        Order order = prepareOrder(userId, createDTO, productId);
+        persistOrderDetails(Collections.singletonList(order), Collections.singletonList(createDTO.getCartIds()));
+        log.info("【业务处理-结束】秒杀订单'{}'创建成功", order.getOrderNo());
+        return order;
+    }
+
+    /**
+     * 普通下单的第一阶段, 购物车中不能包含秒杀商品
+     */
+    public Order prepareOrder(Long userId, OrderCreateDTO createDTO) {
+        return prepareOrder(userId, createDTO, null);
+    }
 
+    /**
+     * 下单第一阶段: 校验、扣减库存并写入订单主表, 订单明细只填充不落库
+     * 需在事务内调用, 组提交模式下每个订单在各自的保存点中执行; 调用方负责事先 flush 写回式购物车
+     * @param flashSaleProductId 秒杀通道下单时为该秒杀商品ID, 购物车项只能是这个商品; 普通下单为 null, 不允许秒杀商品
+     */
+    private Order prepareOrder(Long userId, OrderCreateDTO createDTO, Long flashSaleProductId) {
         // 1. 数据校验: 购物车项和地址
-        List<Cart> cartItems = cartService.listByIds(createDTO.getCartIds());
-        log.info("【数据查询】根据cartIds查询到 {} 条购物车记录", cartItems.size());
+        // 锁定购物车行: 重复提交的同一批购物车项在此排队, 前一个订单提交后读到的是已删除的结果
+        List<Long> requestedCartIds = createDTO.getCartIds() == null ? List.of() : createDTO.getCartIds();
+        List<Cart> cartItems = cartService.listByIdsForUpdate(requestedCartIds);
+        log.info("【数据查询】根据cartIds锁定 {} 条购物车记录", cartItems.size());
         Assert.isTrue(!CollectionUtils.isEmpty(cartItems), "请选择要结算的商品");
         cartItems.forEach(cart -> Assert.isTrue(cart.getUserId().equals(userId), "购物车数据异常"));
+        checkFlashSaleLane(cartItems, flashSaleProductId);
 
         Address address = addressService.getById(createDTO.getAddressId());
         log.info("【数据查询】根据addressId查询到地址: {}", address != null);
         Assert.notNull(address, "收货地址不存在");
         Assert.isTrue(address.getUserId().equals(userId), "地址选择异常");
 
-        // 2. 库存校验与锁定
-        BigDecimal totalAmount = new BigDecimal("0.00");
-        List<OrderItem> orderItems = new ArrayList<>();
+        // 2. 库存校验与锁定: 整个购物车一次加锁、一次扣减
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        cartItems.forEach(cart -> quantities.merge(cart.getProductId(), cart.getQuantity(), Integer::sum));
+        Map<Long, Product> products = stockService.deductStock(quantities);
 
+        try {
+            BigDecimal totalAmount = new BigDecimal("0.00");
+            List<OrderItem> orderItems = new ArrayList<>(cartItems.size());
+            for (Cart cart : cartItems) {
+                // 填充订单明细
+                Product product = products.get(cart.getProductId());
+                OrderItem item = new OrderItem();
+                item.setProductId(product.getId());
+                item.setProductName(product.getName());
+                item.setPrice(product.getPrice());
+                item.setQuantity(cart.getQuantity());
+                item.setImageUrl(product.getImageUrl());
+                orderItems.add(item);
+                totalAmount = totalAmount.add(product.getPrice().multiply(new BigDecimal(cart.getQuantity())));
+            }
+
+            // 3. 创建订单主表
+            Order order = new Order();
+            order.setOrderNo(orderNoGenerator.nextOrderNo());
+            order.setUserId(userId);
+            order.setTotalAmount(totalAmount);
+            order.setStatus(0); // 待付款
+            // 修正后的代码：直接设置 Address 对象
+            order.setReceiverInfo(ReceiverInfo.of(address));
+            this.save(order);
+            log.info("【数据写入】订单主表记录创建成功, 订单号: {}", order.getOrderNo());
+
+            orderItems.forEach(item -> item.setOrderId(order.getId()));
+            order.setItems(orderItems);
+            return order;
+        } catch (RuntimeException e) {
+            // 保存点回滚不会触发事务完成回调, 需主动撤销本次扣减
+            stockService.revertDeduction(quantities);
+            throw e;
+        }
+    }
+
+    /**
+     * 秒杀商品只能经秒杀队列下单, 秒杀通道也只接受该秒杀商品, 避免绕过排队和限流
+     */
+    private void checkFlashSaleLane(List<Cart> cartItems, Long flashSaleProductId) {
         for (Cart cart : cartItems) {
-            // 扣减库存
-            int affectedRows = orderMapper.decreaseStock(cart.getProductId(), cart.getQuantity());
-            if (affectedRows == 0) {
-                Product product = productService.getById(cart.getProductId());
-                log.error("【库存校验失败】商品'{}'库存不足", product.getName());
-                throw new CustomException("商品 '" + product.getName() + "' 库存不足");
+            if (flashSaleProductId == null) {
+                if (flashSaleService.isFlashSaleProduct(cart.getProductId())) {
+                    throw new CustomException("商品'" + cart.getProductId() + "'正在秒杀, 请通过秒杀入口下单");
+                }
+            } else if (!flashSaleProductId.equals(cart.getProductId())) {
+                throw new CustomException("秒杀订单只能包含秒杀商品'" + flashSaleProductId + "'");
             }
-            log.info("【数据写入】商品'{}'库存扣减成功", cart.getProductId());
-
-            // 填充订单明细
-            Product product = productService.getById(cart.getProductId());
-            OrderItem item = new OrderItem();
-            item.setProductId(product.getId());
-            item.setProductName(product.getName());
-            item.setPrice(product.getPrice());
-            item.setQuantity(cart.getQuantity());
-            item.setImageUrl(product.getImageUrl());
-            orderItems.add(item);
-            totalAmount = totalAmount.add(product.getPrice().multiply(new BigDecimal(cart.getQuantity())));
-        }
-
-        // 3. 创建订单主表
-        Order order = new Order();
-        order.setOrderNo(generateOrderNo());
-        order.setUserId(userId);
-        order.setTotalAmount(totalAmount);
-        order.setStatus(0); // 待付款
-        // 修正后的代码：直接设置 Address 对象
-        order.setReceiverInfo(address);
-        this.save(order);
-        log.info("【数据写入】订单主表记录创建成功, 订单号: {}", order.getOrderNo());
+        }
+    }
 
+    /**
+     * 下单第二阶段: 一条语句写入所有订单的明细, 一条语句清空已下单的购物车项;
+     * 购物车删除留在下单事务内, 是防止重复提交的依据. 销量统计/超时登记/通知等后续工作
+     * 启用发件箱时写入订单创建事件由后台任务投递, 否则在事务提交后由进程内事件处理
+     * @param cartIds 与 orders 一一对应的购物车项ID
+     */
+    public void persistOrderDetails(List<Order> orders, List<List<Long>> cartIds) {
         // 4. 批量创建订单明细表
-        orderItems.forEach(item -> item.setOrderId(order.getId()));
-        orderItemService.saveBatch(orderItems);
-        log.info("【数据写入】批量创建订单明细 {} 条", orderItems.size());
+        List<OrderItem> orderItems = new ArrayList<>();
+        orders.forEach(order -> orderItems.addAll(order.getItems()));
+        orderItemMapper.insertBatch(orderItems);
+        log.info("【数据写入】批量创建 {} 个订单的明细 {} 条", orders.size(), orderItems.size());
 
         // 5. 清空已下单的购物车项
-        cartService.removeByIds(createDTO.getCartIds());
-        log.info("【数据写入】清空购物车记录: {}", createDTO.getCartIds());
+        Map<Long, List<Long>> userCartIds = new HashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            userCartIds.computeIfAbsent(orders.get(i).getUserId(), id -> new ArrayList<>()).addAll(cartIds.get(i));
+        }
+        cartService.removeCheckedOut(userCartIds);
 
-        log.info("【业务处理-结束】订单'{}'创建成功", order.getOrderNo());
-        return order;
+        if (outboxEnabled) {
+            long placedAt = System.currentTimeMillis();
+            List<OrderOutbox> events = new ArrayList<>(orders.size());
+            orders.forEach(order -> events.add(buildOrderCreatedEvent(order, placedAt)));
+            orderOutboxMapper.insertBatch(events);
+            log.info("【数据写入】写入订单创建事件 {} 条", events.size());
+        } else {
+            eventPublisher.publishEvent(new OrderPlacedEvent(orders));
+        }
+    }
+
+    private OrderOutbox buildOrderCreatedEvent(Order order, long placedAt) {
+        OrderCreatedEventDTO payload = new OrderCreatedEventDTO();
+        payload.setOrderId(order.getId());
+        payload.setOrderNo(order.getOrderNo());
+        payload.setUserId(order.getUserId());
+        payload.setPlacedAt(placedAt);
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        order.getItems().forEach(item -> quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+        payload.setQuantities(quantities);
+
+        OrderOutbox event = new OrderOutbox();
+        event.setEventType(OrderOutbox.EVENT_ORDER_CREATED);
+        event.setAggregateId(order.getId());
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("订单事件序列化失败", e);
+        }
+        return event;
     }
 
     @Override
     public Page<Order> listUserOrders(Long userId, Page<Order> page, Integer status) {
+        return listUserOrders(userId, page, status, false, 0);
+    }
+
+    @Override
+    public Page<Order> listUserOrders(Long userId, Page<Order> page, Integer status, boolean withItems, int itemLimit) {
         log.info("【业务处理】分页查询用户'{}'的订单: page={}, status={}", userId, page.getCurrent(), status);
+        Page<Order> orderPage = this.page(page, userOrderQuery(userId, status).select(Order.class, LIST_COLUMNS));
+        List<Order> hotOrders = orderPage.getRecords();
+        List<Order> archivedOrders = Collections.emptyList();
+        if (archiveEnabled && (status == null || ARCHIVED_STATUSES.contains(status))) {
+            archivedOrders = appendArchivedOrders(userId, status, orderPage);
+        }
+        log.info("【数据查询】分页查询订单结果: 共{}条, 本页归档订单{}条", orderPage.getTotal(), archivedOrders.size());
+        if (withItems) {
+            attachItemPreviews(hotOrders, itemLimit);
+            List<Order> archived = archivedOrders;
+            ArchiveContext.query(() -> {
+                attachItemPreviews(archived, itemLimit);
+                return null;
+            });
+        }
+        return orderPage;
+    }
+
+    private LambdaQueryWrapper<Order> userOrderQuery(Long userId, Integer status) {
         LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(Order::getUserId, userId);
         queryWrapper.eq(status != null, Order::getStatus, status);
         queryWrapper.orderByDesc(Order::getCreateTime);
+        return queryWrapper;
+    }
 
-        Page<Order> orderPage = this.page(page, queryWrapper);
-        log.info("【数据查询】分页查询订单结果: 共{}条", orderPage.getTotal());
-        return orderPage;
+    /**
+     * 热表订单排在前面, 归档订单接在其后; 热表还没翻完时不访问归档表, 总数只含热表.
+     * 翻到热表的最后一页时才统计归档表, 总数变为两张表之和, 客户端据此继续翻页
+     */
+    private List<Order> appendArchivedOrders(Long userId, Integer status, Page<Order> orderPage) {
+        long hotTotal = orderPage.getTotal();
+        long offset = orderPage.offset();
+        if (offset + orderPage.getRecords().size() < hotTotal) {
+            return Collections.emptyList();
+        }
+        long archivedTotal = ArchiveContext.query(() -> this.count(userOrderQuery(userId, status)));
+        orderPage.setTotal(hotTotal + archivedTotal);
+        long missing = orderPage.getSize() - orderPage.getRecords().size();
+        if (archivedTotal == 0 || missing <= 0) {
+            return Collections.emptyList();
+        }
+        long archiveOffset = Math.max(0, offset - hotTotal);
+        LambdaQueryWrapper<Order> archiveQuery = userOrderQuery(userId, status)
+                .select(Order.class, LIST_COLUMNS)
+                .last("LIMIT " + archiveOffset + ", " + missing);
+        List<Order> archivedOrders = ArchiveContext.query(() -> this.list(archiveQuery));
+        List<Order> records = new ArrayList<>(orderPage.getRecords());
+        records.addAll(archivedOrders);
+        orderPage.setRecords(records);
+        return archivedOrders;
+    }
+
+    /**
+     * 一次 order_id IN (...) 查询加载整页订单的明细, 在内存中分组并按 itemLimit 截断
+     */
+    private void attachItemPreviews(List<Order> orders, int itemLimit) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Map<Long, Order> orderById = new HashMap<>(orders.size() * 2);
+        orders.forEach(order -> {
+            orderById.put(order.getId(), order);
+            order.setItems(new ArrayList<>(Math.min(itemLimit, 8)));
+            order.setItemCount(0);
+        });
+
+        LambdaQueryWrapper<OrderItem> itemQuery = new LambdaQueryWrapper<>();
+        itemQuery.in(OrderItem::getOrderId, orderById.keySet()).orderByAsc(OrderItem::getId);
+        List<OrderItem> items = orderItemService.list(itemQuery);
+        log.info("【数据查询】批量查询 {} 个订单的明细, 共{}条", orders.size(), items.size());
+
+        for (OrderItem item : items) {
+            Order order = orderById.get(item.getOrderId());
+            order.setItemCount(order.getItemCount() + 1);
+            if (order.getItems().size() < itemLimit) {
+                order.getItems().add(item);
+            }
+        }
     }
 
     @Override
     public Order getOrderDetailByOrderNo(Long userId, String orderNo) {
         log.info("【业务处理】查询用户'{}'的订单详情: orderNo={}", userId, orderNo);
+        Order order = loadOrderDetail(userId, orderNo);
+        if (order == null && archiveEnabled) {
+            // 热表未命中再查归档表
+            order = ArchiveContext.query(() -> loadOrderDetail(userId, orderNo));
+        }
+        return order;
+    }
+
+    private Order loadOrderDetail(Long userId, String orderNo) {
         LambdaQueryWrapper<Order> orderQuery = new LambdaQueryWrapper<>();
         orderQuery.eq(Order::getOrderNo, orderNo).eq(Order::getUserId, userId);
         Order order = this.getOne(orderQuery);
@@ -146,22 +376,131 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     }
 
     @Override
+    @Transactional
     public void payOrder(Long userId, String orderNo) {
         log.info("【业务处理】(模拟)用户'{}'支付订单: orderNo={}", userId, orderNo);
-        LambdaQueryWrapper<Order> query = new LambdaQueryWrapper<>();
-        query.eq(Order::getOrderNo, orderNo).eq(Order::getUserId, userId);
-        Order order = this.getOne(query);
-        Assert.notNull(order, "订单不存在");
-        Assert.isTrue(order.getStatus() == 0, "订单状态异常，无法支付");
+        transitionUserOrder(userId, orderNo, OrderTransition.PAY);
+        publishOrderPaid(orderMapper.sumItemQuantitiesByOrderNo(orderNo));
+    }
+
+    @Override
+    @Transactional
+    public void cancelOrder(Long userId, String orderNo) {
+        log.info("【业务处理】用户'{}'取消订单: orderNo={}", userId, orderNo);
+        transitionUserOrder(userId, orderNo, OrderTransition.CANCEL);
+        Order order = this.getOne(new LambdaQueryWrapper<Order>()
+                .select(Order::getId)
+                .eq(Order::getOrderNo, orderNo));
+        restoreOrderStock(Collections.singletonList(order.getId()));
+    }
+
+    @Override
+    public void confirmReceipt(Long userId, String orderNo) {
+        log.info("【业务处理】用户'{}'确认收货: orderNo={}", userId, orderNo);
+        transitionUserOrder(userId, orderNo, OrderTransition.COMPLETE);
+    }
+
+    /**
+     * 一条条件更新完成迁移; 只有失败时才再查一次, 区分订单不存在和状态不符
+     */
+    private void transitionUserOrder(Long userId, String orderNo, OrderTransition transition) {
+        int affectedRows = orderMapper.updateStatus(orderNo, userId, transition.getFrom(), transition.getTo());
+        if (affectedRows == 0) {
+            long exists = this.count(new LambdaQueryWrapper<Order>()
+                    .eq(Order::getOrderNo, orderNo)
+                    .eq(Order::getUserId, userId));
+            if (exists == 0) {
+                throw new CustomException("订单不存在");
+            }
+            throw new CustomException("订单状态异常，无法" + transition.getDescription());
+        }
+        log.info("【数据写入】订单'{}'状态更新为{}", orderNo, transition.getTo());
+    }
 
-        order.setStatus(1); // 更新为已付款
-        order.setPaymentTime(LocalDateTime.now());
-        boolean result = this.updateById(order);
-        log.info("【数据写入】订单'{}'状态更新为已付款, 结果: {}", orderNo, result);
+    @Override
+    public List<OrderTransitionResultDTO> transitionOrders(OrderTransition transition, List<String> orderNos) {
+        List<String> distinctOrderNos = new ArrayList<>(new LinkedHashSet<>(orderNos));
+        log.info("【业务处理】批量{}订单, 共{}个", transition.getDescription(), distinctOrderNos.size());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Map<String, OrderTransitionResultDTO> results = new HashMap<>();
+        for (int from = 0; from < distinctOrderNos.size(); from += transitionBatchSize) {
+            List<String> batch = distinctOrderNos.subList(from, Math.min(from + transitionBatchSize, distinctOrderNos.size()));
+            transactionTemplate.executeWithoutResult(status -> transitionBatch(transition, batch, results));
+        }
+        List<OrderTransitionResultDTO> ordered = new ArrayList<>(distinctOrderNos.size());
+        distinctOrderNos.forEach(orderNo -> ordered.add(results.get(orderNo)));
+        return ordered;
     }
 
-    private String generateOrderNo() {
-        return DateTimeFormatter.ofPattern("yyyyMMddHHmmss").format(LocalDateTime.now())
-                + (new Random().nextInt(9000) + 1000);
+    /**
+     * 先锁定整批订单并在内存中判断状态, 再用一条条件更新完成迁移, 每个订单的结果都是确定的
+     */
+    private void transitionBatch(OrderTransition transition, List<String> orderNos,
+                                 Map<String, OrderTransitionResultDTO> results) {
+        List<Order> locked = orderMapper.selectStatusForUpdate(orderNos);
+        List<Long> eligibleIds = new ArrayList<>(locked.size());
+        for (Order order : locked) {
+            if (order.getStatus() == transition.getFrom()) {
+                eligibleIds.add(order.getId());
+                results.put(order.getOrderNo(), new OrderTransitionResultDTO(
+                        order.getOrderNo(), OrderTransitionResultDTO.Result.SUCCESS, transition.getTo()));
+            } else {
+                results.put(order.getOrderNo(), new OrderTransitionResultDTO(
+                        order.getOrderNo(), OrderTransitionResultDTO.Result.WRONG_STATE, order.getStatus()));
+            }
+        }
+        for (String orderNo : orderNos) {
+            results.putIfAbsent(orderNo, new OrderTransitionResultDTO(
+                    orderNo, OrderTransitionResultDTO.Result.NOT_FOUND, null));
+        }
+        if (eligibleIds.isEmpty()) {
+            return;
+        }
+        int affectedRows = orderMapper.updateStatusBatch(eligibleIds, transition.getFrom(), transition.getTo());
+        if (transition == OrderTransition.CANCEL) {
+            restoreOrderStock(eligibleIds);
+        } else if (transition == OrderTransition.PAY) {
+            publishOrderPaid(orderMapper.sumItemQuantities(eligibleIds));
+        }
+        log.info("【数据写入】批量{}订单{}个, 状态不符或不存在{}个",
+                transition.getDescription(), affectedRows, orderNos.size() - affectedRows);
+    }
+
+    /**
+     * 发布支付事件 (销量统计等在事务提交后处理)
+     */
+    private void publishOrderPaid(List<StockDeductionDTO> rows) {
+        Map<Long, Integer> quantities = new HashMap<>(rows.size() * 2);
+        rows.forEach(row -> quantities.put(row.getProductId(), row.getQuantity()));
+        eventPublisher.publishEvent(new OrderPaidEvent(quantities));
+    }
+
+    /**
+     * 按商品汇总一批已取消订单的购买数量, 一条语句归还库存, 并发布取消事件 (销量统计等在事务提交后处理)
+     */
+    private void restoreOrderStock(List<Long> orderIds) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        orderMapper.sumItemQuantities(orderIds)
+                .forEach(row -> quantities.put(row.getProductId(), row.getQuantity()));
+        stockService.restoreStock(quantities);
+        eventPublisher.publishEvent(new OrderCancelledEvent(quantities));
+    }
+
+    @Override
+    @Transactional
+    public int cancelExpiredOrders(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        // 1. 锁定仍为待付款的订单, 已被支付或取消的直接跳过
+        List<Long> pendingIds = orderMapper.selectPendingIdsForUpdate(orderIds);
+        if (pendingIds.isEmpty()) {
+            return 0;
+        }
+        // 2. 一条语句取消, 3. 按商品汇总后一条语句归还库存
+        int cancelled = orderMapper.updateStatusBatch(pendingIds, OrderTransition.CANCEL.getFrom(), OrderTransition.CANCEL.getTo());
+        restoreOrderStock(pendingIds);
+        log.info("【数据写入】取消超时订单{}个", cancelled);
+        return cancelled;
     }
-}
\ No newline at end of file
+}
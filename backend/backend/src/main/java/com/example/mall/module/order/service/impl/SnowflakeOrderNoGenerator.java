@@ -0,0 +1,68 @@
+package com.example.mall.module.order.service.impl;
+
+import com.example.mall.module.order.service.OrderNoGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake 风格订单号: 41位毫秒时间戳 + 10位节点ID + 12位序列号
+ * 多个后端副本通过 app.order-no.worker-id 区分节点, 单节点内严格单调递增.
+ * 时间戳与序列号合并存放在一个 AtomicLong 中, 通过CAS推进, 无锁且不分配对象;
+ * 同一毫秒序列号用尽或系统时钟回拨时, 继续沿用(借用)逻辑时钟而不是等待或报错.
+ */
+@Slf4j
+@Component
+public class SnowflakeOrderNoGenerator implements OrderNoGenerator {
+
+    // 2024-01-01T00:00:00Z
+    static final long EPOCH = 1704067200000L;
+    static final int WORKER_ID_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long workerId;
+    private final LongSupplier clock;
+    // 高位为相对EPOCH的逻辑时间戳, 低12位为序列号
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public SnowflakeOrderNoGenerator(@Value("${app.order-no.worker-id:0}") long workerId) {
+        this(workerId, System::currentTimeMillis);
+    }
+
+    SnowflakeOrderNoGenerator(long workerId, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("app.order-no.worker-id 必须在 0~" + MAX_WORKER_ID + " 之间");
+        }
+        this.workerId = workerId;
+        this.clock = clock;
+        log.info("【订单号】Snowflake 订单号生成器已初始化, workerId={}", workerId);
+    }
+
+    @Override
+    public String nextOrderNo() {
+        return Long.toString(nextId());
+    }
+
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            long now = clock.getAsLong() - EPOCH;
+            // 时间前进则序列号归零; 同一毫秒或时钟回拨时在上次状态上加一,
+            // 序列号溢出会自然进位到时间戳部分
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (WORKER_ID_BITS + SEQUENCE_BITS))
+                        | (workerId << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+}
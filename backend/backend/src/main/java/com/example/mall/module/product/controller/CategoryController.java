@@ -3,11 +3,11 @@ package com.example.mall.module.product.controller;
 import com.example.mall.common.api.R;
 import com.example.mall.module.product.entity.Category;
 import com.example.mall.module.product.service.CategoryService;
+import com.example.mall.module.product.service.impl.CatalogVersion;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -19,11 +19,48 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    /**
+     * tree=true 时返回带商品数的分类树, 否则返回平铺列表; 均从内存快照返回
+     * 携带 If-None-Match 且目录版本未变时直接返回 304
+     */
     @GetMapping
-    public R<List<Category>> list() {
-        log.info("【数据流入】接收到查询所有分类列表的请求");
-        List<Category> list = categoryService.list();
+    public R<List<?>> list(@RequestParam(defaultValue = "false") boolean tree, WebRequest webRequest) {
+        log.info("【数据流入】接收到查询分类列表的请求: tree={}", tree);
+        if (webRequest.checkNotModified(catalogVersion.catalogEtag(), catalogVersion.catalogLastModified())) {
+            return null;
+        }
+        if (tree) {
+            return R.success("查询成功", categoryService.getCategoryTree());
+        }
+        List<Category> list = categoryService.listCategories();
         log.info("【数据查询】查询到 {} 条分类记录", list.size());
         return R.success("查询成功", list);
     }
-}
\ No newline at end of file
+
+    // 后台管理接口, 实际项目中应加权限控制
+
+    @PostMapping("/admin")
+    public R<Void> create(@RequestBody Category category) {
+        log.info("【数据流入】(Admin)接收到新增分类请求: {}", category);
+        boolean success = categoryService.createCategory(category);
+        return success ? R.success("新增成功", null) : R.failed("新增失败");
+    }
+
+    @PutMapping("/admin/{id}")
+    public R<Void> update(@PathVariable Long id, @RequestBody Category category) {
+        log.info("【数据流入】(Admin)接收到更新分类请求: id={}, data={}", id, category);
+        category.setId(id);
+        boolean success = categoryService.updateCategory(category);
+        return success ? R.success("更新成功", null) : R.failed("更新失败");
+    }
+
+    @DeleteMapping("/admin/{id}")
+    public R<Void> delete(@PathVariable Long id) {
+        log.info("【数据流入】(Admin)接收到删除分类请求: id={}", id);
+        boolean success = categoryService.deleteCategory(id);
+        return success ? R.success("删除成功", null) : R.failed("删除失败");
+    }
+}
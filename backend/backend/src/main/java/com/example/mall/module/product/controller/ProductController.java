@@ -1,43 +1,230 @@
 package com.example.mall.module.product.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.mall.common.api.CursorPage;
 import com.example.mall.common.api.R;
+import com.example.mall.common.exception.CustomException;
+import com.example.mall.module.product.dto.ProductBatchQueryDTO;
+import com.example.mall.module.product.dto.ProductBatchResultDTO;
+import com.example.mall.module.product.dto.ProductCatalog;
+import com.example.mall.module.product.dto.ProductFacetResultDTO;
+import com.example.mall.module.product.dto.ProductImportResultDTO;
+import com.example.mall.module.product.dto.ProductSnapshot;
+import com.example.mall.module.product.dto.TopSellerDTO;
 import com.example.mall.module.product.entity.Product;
+import com.example.mall.module.product.service.ProductSalesService;
 import com.example.mall.module.product.service.ProductService;
+import com.example.mall.module.product.service.impl.CatalogVersion;
+import com.example.mall.module.product.service.impl.ProductImporter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @RestController
 @RequestMapping("/products")
 public class ProductController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final int MAX_TOP_LIMIT = 100;
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
     @Autowired
     private ProductService productService;
+    @Autowired
+    private ProductImporter productImporter;
+    @Autowired
+    private CatalogVersion catalogVersion;
+    @Autowired(required = false)
+    private ProductSalesService productSalesService;
+
+    @Value("${app.product-batch.max-ids:200}")
+    private int maxBatchIds;
 
+    /**
+     * 列表/游标/搜索三种模式均以目录版本号 + 库存版本号作为 ETag, 携带 If-None-Match 且版本未变时直接返回 304, 不访问数据库;
+     * stockLevel=true 时只返回库存档位, ETag 只随档位变化, 普通下单不会使其失效
+     */
     @GetMapping
-    public R<Page<Product>> list(
+    public R<Page<ProductSnapshot>> list(
             @RequestParam(defaultValue = "1") long page,
             @RequestParam(defaultValue = "10") long size,
             @RequestParam(required = false) String name,
-            @RequestParam(required = false) Long categoryId) {
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "false") boolean stockLevel,
+            WebRequest webRequest) {
 
         log.info("【数据流入】接收到商品列表分页查询请求: page={}, size={}, name={}, categoryId={}", page, size, name, categoryId);
+        if (webRequest.checkNotModified(catalogVersion.etag(stockLevel), catalogVersion.lastModified(stockLevel))) {
+            return null;
+        }
         Page<Product> pageInfo = new Page<>(page, size);
-        Page<Product> resultPage = productService.listProductsByPage(pageInfo, name, categoryId);
+        Page<ProductSnapshot> resultPage = productService.listProductsByPage(pageInfo, name, categoryId, stockLevel);
         return R.success("查询成功", resultPage);
     }
 
+    /**
+     * 游标分页模式: 携带 cursor 参数时生效 (第一页传空字符串), 不统计总数, 不返回商品描述
+     */
+    @GetMapping(params = {"cursor", "!q", "!facets"})
+    public R<CursorPage<ProductSnapshot>> listByCursor(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            @RequestParam(defaultValue = "false") boolean stockLevel,
+            WebRequest webRequest) {
+
+        log.info("【数据流入】接收到商品列表游标查询请求: cursor={}, size={}, name={}, categoryId={}", cursor, size, name, categoryId);
+        if (webRequest.checkNotModified(catalogVersion.etag(stockLevel), catalogVersion.lastModified(stockLevel))) {
+            return null;
+        }
+        int pageSize = Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE);
+        CursorPage<ProductSnapshot> result = productService.listProductsByCursor(cursor, pageSize, name, categoryId, withTotal, stockLevel);
+        return R.success("查询成功", result);
+    }
+
+    /**
+     * 搜索模式: 携带 q 参数时生效, 按相关度排序, 使用 cursor 翻页 (第一页不传或传空字符串)
+     */
+    @GetMapping(params = "q")
+    public R<CursorPage<ProductSnapshot>> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "false") boolean stockLevel,
+            WebRequest webRequest) {
+
+        log.info("【数据流入】接收到商品搜索请求: q={}, cursor={}, size={}, categoryId={}", q, cursor, size, categoryId);
+        if (!StringUtils.hasText(q)) {
+            return R.failed("搜索关键词不能为空");
+        }
+        if (webRequest.checkNotModified(catalogVersion.etag(stockLevel), catalogVersion.lastModified(stockLevel))) {
+            return null;
+        }
+        int pageSize = Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE);
+        return R.success("查询成功", productService.searchProducts(q.trim(), categoryId, cursor, pageSize, stockLevel));
+    }
+
+    /**
+     * 分面筛选模式: 携带 facets 参数时生效, 按分类子树、价格区间和是否有货筛选, 返回当前页商品和各维度的商品数
+     */
+    @GetMapping(params = {"facets", "!q"})
+    public R<ProductFacetResultDTO> facets(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(defaultValue = "1") long page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean stockLevel,
+            WebRequest webRequest) {
+
+        log.info("【数据流入】接收到商品分面筛选请求: categoryId={}, minPrice={}, maxPrice={}, inStock={}, page={}, size={}",
+                categoryId, minPrice, maxPrice, inStock, page, size);
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            return R.failed("最低价不能高于最高价");
+        }
+        if (webRequest.checkNotModified(catalogVersion.etag(stockLevel), catalogVersion.lastModified(stockLevel))) {
+            return null;
+        }
+        int pageSize = Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE);
+        return R.success("查询成功", productService.facetProducts(categoryId, minPrice, maxPrice, inStock,
+                Math.max(page, 1), pageSize, stockLevel));
+    }
+
+    /**
+     * 畅销榜 (按已支付数量), 从内存快照返回; 指定 categoryId 时包含其子孙分类的商品
+     */
+    @GetMapping("/top")
+    public R<List<TopSellerDTO>> top(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "10") int limit) {
+        log.info("【数据流入】接收到畅销榜查询请求: categoryId={}, limit={}", categoryId, limit);
+        if (productSalesService == null) {
+            return R.failed("销量统计未启用");
+        }
+        int topLimit = Math.min(Math.max(limit, 1), MAX_TOP_LIMIT);
+        return R.success("查询成功", productSalesService.top(categoryId, topLimit));
+    }
+
+    /**
+     * 批量查询商品详情, 如 /products/batch?ids=1,2,3; ID较多时使用 POST
+     */
+    @GetMapping("/batch")
+    public R<ProductBatchResultDTO> batchGet(@RequestParam List<Long> ids,
+                                             @RequestParam(defaultValue = "false") boolean stockLevel) {
+        log.info("【数据流入】接收到批量查询商品请求: count={}", ids.size());
+        return R.success("查询成功", getBatch(ids, stockLevel));
+    }
+
+    @PostMapping("/batch")
+    public R<ProductBatchResultDTO> batchPost(@RequestBody ProductBatchQueryDTO queryDTO,
+                                              @RequestParam(defaultValue = "false") boolean stockLevel) {
+        List<Long> ids = queryDTO.getIds();
+        log.info("【数据流入】接收到批量查询商品请求(POST): count={}", ids == null ? 0 : ids.size());
+        if (ids == null) {
+            throw new CustomException("商品ID列表不能为空");
+        }
+        return R.success("查询成功", getBatch(ids, stockLevel));
+    }
+
+    private ProductBatchResultDTO getBatch(List<Long> ids, boolean stockLevel) {
+        if (ids.isEmpty()) {
+            throw new CustomException("商品ID列表不能为空");
+        }
+        if (ids.size() > maxBatchIds) {
+            throw new CustomException("单次最多查询" + maxBatchIds + "个商品");
+        }
+        return productService.getProductSnapshots(ids, stockLevel);
+    }
+
+    /**
+     * 商品详情, ETag 由商品ID、修改时间和库存 (或档位) 版本号组成, 在读取库存之前比较;
+     * 目录缓存命中且未修改时不访问数据库也不序列化响应体
+     */
     @GetMapping("/{id}")
-    public R<Product> getById(@PathVariable Long id) {
+    public R<ProductSnapshot> getById(@PathVariable Long id,
+                                      @RequestParam(defaultValue = "false") boolean stockLevel,
+                                      WebRequest webRequest) {
         log.info("【数据流入】接收到查询商品详情请求: id={}", id);
-        Product product = productService.getById(id);
-        log.info("【数据查询】根据ID'{}'查询到商品: {}", id, product != null);
-        if (product == null) {
+        // 库存版本号在读取之前取, 读取期间的变化只会让响应带上旧版本号
+        String stockEtag = catalogVersion.stockEtag(stockLevel);
+        ProductCatalog catalog = productService.getProductCatalog(id);
+        log.info("【数据查询】根据ID'{}'查询到商品: {}", id, catalog != null);
+        if (catalog == null) {
             return R.failed("商品不存在");
         }
-        return R.success("查询成功", product);
+        long updateTime = catalog.updateTime() == null ? -1
+                : catalog.updateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        // 库存变化不会更新目录的修改时间, Last-Modified 取两者中较晚的
+        long lastModified = Math.max(updateTime, catalogVersion.lastModified(stockLevel));
+        // update_time 只精确到秒; 商品修改同样会递增库存版本号, 同一秒内的多次修改也能区分
+        String etag = catalog.id() + "-" + updateTime + "-" + stockEtag;
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+        return R.success("查询成功", productService.getProductSnapshot(catalog, stockLevel));
     }
 
     // 后台管理接口示例
@@ -45,7 +232,7 @@ public class ProductController {
     @PostMapping("/admin") // 蓝图中为/admin/products，为简化暂不加前缀，实际项目中应加权限控制
     public R<Void> create(@RequestBody Product product) {
         log.info("【数据流入】(Admin)接收到新增商品请求: {}", product);
-        boolean success = productService.save(product);
+        boolean success = productService.createProduct(product);
         return success ? R.success("新增成功", null) : R.failed("新增失败");
     }
 
@@ -53,14 +240,50 @@ public class ProductController {
     public R<Void> update(@PathVariable Long id, @RequestBody Product product) {
         log.info("【数据流入】(Admin)接收到更新商品请求: id={}, data={}", id, product);
         product.setId(id);
-        boolean success = productService.updateById(product);
+        boolean success = productService.updateProduct(product);
         return success ? R.success("更新成功", null) : R.failed("更新失败");
     }
 
     @DeleteMapping("/admin/{id}")
     public R<Void> delete(@PathVariable Long id) {
         log.info("【数据流入】(Admin)接收到删除商品请求: id={}", id);
-        boolean success = productService.removeById(id);
+        boolean success = productService.deleteProduct(id);
         return success ? R.success("删除成功", null) : R.failed("删除失败");
     }
-}
\ No newline at end of file
+
+    /**
+     * 批量导入商品, 请求体按 Content-Type 解析为 CSV (text/csv, 首行为表头) 或 NDJSON (application/x-ndjson),
+     * 边读边写, 返回逐行的错误报告
+     */
+    @PostMapping(value = "/admin/import", consumes = {"text/csv", "application/x-ndjson"})
+    public R<ProductImportResultDTO> importProducts(HttpServletRequest request) throws IOException {
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        log.info("【数据流入】(Admin)接收到商品批量导入请求: contentType={}, contentLength={}", contentType, request.getContentLengthLong());
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        try (Reader reader = new InputStreamReader(request.getInputStream(), charset)) {
+            ProductImportResultDTO result = contentType.isCompatibleWith(TEXT_CSV)
+                    ? productImporter.importCsv(reader)
+                    : productImporter.importNdjson(reader);
+            return R.success("导入完成", result);
+        }
+    }
+
+    /**
+     * 流式导出商品 (NDJSON, 每行一个商品, 按ID升序), 传 updatedSince (如 2024-01-01T00:00:00) 时只导出该时间后修改过的商品
+     */
+    @GetMapping("/admin/export")
+    public void exportProducts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince,
+            HttpServletResponse response) throws IOException {
+        log.info("【数据流入】(Admin)接收到商品导出请求: updatedSince={}", updatedSince);
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        productService.exportProducts(updatedSince, response.getOutputStream());
+    }
+
+    @GetMapping("/admin/cache-stats")
+    public R<Map<String, Object>> cacheStats() {
+        log.info("【数据流入】(Admin)接收到商品缓存统计查询请求");
+        return R.success("查询成功", productService.getCacheStats());
+    }
+}
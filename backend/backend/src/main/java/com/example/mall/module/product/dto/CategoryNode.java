@@ -0,0 +1,21 @@
+package com.example.mall.module.product.dto;
+
+import java.util.List;
+
+/**
+ * 分类树节点 (不可变)
+ * left/right 为先序遍历区间: 子孙节点的 left 都落在 [left, right] 内
+ *
+ * @param productCount      直接挂在该分类下的商品数
+ * @param totalProductCount 整棵子树的商品数
+ */
+public record CategoryNode(Long id,
+                           String name,
+                           Long parentId,
+                           int left,
+                           int right,
+                           int depth,
+                           long productCount,
+                           long totalProductCount,
+                           List<CategoryNode> children) {
+}
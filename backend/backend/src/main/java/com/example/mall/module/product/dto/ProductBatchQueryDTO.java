@@ -0,0 +1,10 @@
+package com.example.mall.module.product.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ProductBatchQueryDTO {
+    private List<Long> ids;
+}
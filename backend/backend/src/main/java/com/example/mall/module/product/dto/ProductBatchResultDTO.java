@@ -0,0 +1,18 @@
+package com.example.mall.module.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量查询商品的结果: products 按请求顺序排列 (重复ID只返回一次), 不存在的ID放在 missingIds 中
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchResultDTO {
+    private List<ProductSnapshot> products;
+    private List<Long> missingIds;
+}
@@ -0,0 +1,42 @@
+package com.example.mall.module.product.dto;
+
+import com.example.mall.module.product.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 商品目录信息的不可变快照 (不含库存), 商品缓存中只保存该快照;
+ * 目录字段只随后台编辑变化, 可以长时间缓存, 库存在响应时由 StockView 合并
+ */
+public record ProductCatalog(Long id,
+                             Long categoryId,
+                             String name,
+                             String description,
+                             BigDecimal price,
+                             String imageUrl,
+                             LocalDateTime createTime,
+                             LocalDateTime updateTime) {
+
+    public static ProductCatalog from(Product product) {
+        return new ProductCatalog(product.getId(), product.getCategoryId(), product.getName(),
+                product.getDescription(), product.getPrice(), product.getImageUrl(),
+                product.getCreateTime(), product.getUpdateTime());
+    }
+
+    /**
+     * 复制为可修改的实体 (stock 为 null)
+     */
+    public Product toProduct() {
+        Product product = new Product();
+        product.setId(id);
+        product.setCategoryId(categoryId);
+        product.setName(name);
+        product.setDescription(description);
+        product.setPrice(price);
+        product.setImageUrl(imageUrl);
+        product.setCreateTime(createTime);
+        product.setUpdateTime(updateTime);
+        return product;
+    }
+}
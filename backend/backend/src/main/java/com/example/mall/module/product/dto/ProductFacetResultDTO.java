@@ -0,0 +1,49 @@
+package com.example.mall.module.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 分面筛选结果: 当前页商品和各维度的商品数
+ * 每个维度的计数只应用其他维度的筛选条件, 即切换到该维度的某个取值后能得到的结果数
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetResultDTO {
+
+    private List<ProductSnapshot> records;
+    // 满足全部条件的商品数
+    private long total;
+    private long current;
+    private long size;
+    // 所选分类 (未选时为根分类) 的直接子分类, 计数包含子孙分类
+    private List<CategoryFacet> categories;
+    private List<PriceRangeFacet> priceRanges;
+    private long inStockCount;
+    private long outOfStockCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategoryFacet {
+        private Long id;
+        private String name;
+        private long count;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceRangeFacet {
+        // 含
+        private BigDecimal min;
+        // 不含, 最后一档为 null
+        private BigDecimal max;
+        private long count;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.mall.module.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品批量导入结果, errors 最多保留 app.product-import.max-errors 条
+ */
+@Data
+public class ProductImportResultDTO {
+
+    // 读取到的数据行数 (不含表头)
+    private int total;
+    // 不带ID, 新增的行数
+    private int inserted;
+    // 带ID, 按ID新增或覆盖的行数
+    private int upserted;
+    private int failed;
+    private List<RowError> errors = new ArrayList<>();
+    // 失败行超过上限时不再记录明细
+    private boolean errorsTruncated;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        // CSV 为记录起始行号, NDJSON 为行号, 均从1开始 (CSV 表头为第1行)
+        private int line;
+        private String message;
+    }
+}
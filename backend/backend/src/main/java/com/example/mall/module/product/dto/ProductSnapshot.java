@@ -0,0 +1,25 @@
+package com.example.mall.module.product.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 商品接口返回的不可变快照: 目录信息 (ProductCatalog) 与库存在响应时合并;
+ * 只要求库存档位时 stock 为 null, 其余字段与 Product 一致
+ */
+public record ProductSnapshot(Long id,
+                              Long categoryId,
+                              String name,
+                              String description,
+                              BigDecimal price,
+                              Integer stock,
+                              StockLevel stockLevel,
+                              String imageUrl,
+                              LocalDateTime createTime,
+                              LocalDateTime updateTime) {
+
+    public static ProductSnapshot of(ProductCatalog catalog, Integer stock, StockLevel stockLevel) {
+        return new ProductSnapshot(catalog.id(), catalog.categoryId(), catalog.name(), catalog.description(),
+                catalog.price(), stock, stockLevel, catalog.imageUrl(), catalog.createTime(), catalog.updateTime());
+    }
+}
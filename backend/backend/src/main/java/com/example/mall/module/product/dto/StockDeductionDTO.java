@@ -0,0 +1,16 @@
+package com.example.mall.module.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个商品的库存扣减项
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockDeductionDTO {
+    private Long productId;
+    private Integer quantity;
+}
@@ -0,0 +1,17 @@
+package com.example.mall.module.product.dto;
+
+/**
+ * 库存档位, 用于不需要精确库存的展示场景; 精确库存每次下单都会变化, 档位只在跨越阈值时变化
+ */
+public enum StockLevel {
+    IN_STOCK,     // 库存充足
+    LOW,          // 库存紧张 (不超过 app.stock-view.low-threshold)
+    OUT_OF_STOCK; // 无库存
+
+    public static StockLevel of(int stock, int lowThreshold) {
+        if (stock <= 0) {
+            return OUT_OF_STOCK;
+        }
+        return stock <= lowThreshold ? LOW : IN_STOCK;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.mall.module.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 库存不足的商品明细, 随异常一起返回给前端
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockShortageDTO {
+    private Long productId;
+    private String productName;
+    private Integer requested;
+    private Integer available;
+}
@@ -0,0 +1,15 @@
+package com.example.mall.module.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopSellerDTO {
+    private Long productId;
+    private Long categoryId;
+    private Long paidQuantity;
+    private Long orderedQuantity;
+}
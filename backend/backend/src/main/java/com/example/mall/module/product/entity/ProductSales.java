@@ -0,0 +1,21 @@
+package com.example.mall.module.product.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("product_sales")
+public class ProductSales {
+    @TableId(type = IdType.INPUT)
+    private Long productId;
+    private Long categoryId;
+    // 下单数量 (含未支付)
+    private Long orderedQuantity;
+    // 已支付数量, 畅销榜按此排序
+    private Long paidQuantity;
+    private LocalDateTime updateTime;
+}
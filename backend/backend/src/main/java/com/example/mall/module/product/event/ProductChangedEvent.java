@@ -0,0 +1,30 @@
+package com.example.mall.module.product.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品新增/修改/删除后发布 (缓存已失效); 批量导入时一批商品只发布一次
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final List<Long> productIds;
+    private final Type type;
+    // 分类ID -> 该分类下商品数的变化, 没有商品新增/删除/换分类时为空
+    private final Map<Long, Integer> categoryDeltas;
+
+    public ProductChangedEvent(Long productId, Type type, Map<Long, Integer> categoryDeltas) {
+        this(List.of(productId), type, categoryDeltas);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.mall.module.product.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * 商品在有货/无货之间切换后发布 (库存已对 StockView 可见); 无法确定变化前库存的商品也包含在内
+ */
+@Getter
+@AllArgsConstructor
+public class ProductStockChangedEvent {
+
+    private final Set<Long> productIds;
+}
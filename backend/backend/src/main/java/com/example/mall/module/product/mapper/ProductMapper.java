@@ -1,7 +1,65 @@
 package com.example.mall.module.product.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.mall.module.product.dto.StockDeductionDTO;
 import com.example.mall.module.product.entity.Product;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 public interface ProductMapper extends BaseMapper<Product> {
-}
\ No newline at end of file
+
+    /**
+     * 按商品ID升序批量锁定商品行 (SELECT ... FOR UPDATE), 返回锁定时的商品快照
+     */
+    List<Product> selectBatchForUpdate(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * 只查询ID和库存, 供库存视图批量加载
+     */
+    List<Product> selectStockBatch(@Param("productIds") Collection<? extends Long> productIds);
+
+    /**
+     * 一条多行条件UPDATE批量扣减库存, 返回受影响行数
+     */
+    int decreaseStockBatch(@Param("items") List<StockDeductionDTO> items);
+
+    /**
+     * 一条语句按增量批量调整库存 (不做库存校验, 用于内存账本回写)
+     * @param deltas 商品ID -> 库存增量(扣减为负数)
+     */
+    int adjustStockBatch(@Param("deltas") Map<Long, Integer> deltas);
+
+    /**
+     * 游标分页查询商品列表, 按 (create_time, id) 倒序, 不查询 description 大字段
+     * @param createTime 上一页最后一条的创建时间, 为 null 表示第一页
+     * @param id 上一页最后一条的ID
+     * @param categoryIds 分类及其子孙分类的ID, 为 null 表示不限
+     */
+    List<Product> selectPageAfter(@Param("createTime") LocalDateTime createTime,
+                                  @Param("id") Long id,
+                                  @Param("name") String name,
+                                  @Param("categoryIds") Collection<Long> categoryIds,
+                                  @Param("limit") int limit);
+
+    /**
+     * 多行 INSERT 批量新增商品, 自增ID回填到各商品对象
+     */
+    int insertBatch(@Param("products") List<Product> products);
+
+    /**
+     * 多行 INSERT ... ON DUPLICATE KEY UPDATE, 按ID新增或整行覆盖
+     * @param updateStock 已存在的行是否覆盖库存; 库存账本模式下为 false, 库存只由账本维护
+     */
+    int upsertBatch(@Param("products") List<Product> products, @Param("updateStock") boolean updateStock);
+
+    /**
+     * 按ID升序流式读取商品 (服务端逐行返回, 不缓存整个结果集), 必须在事务内迭代
+     * @param updatedSince 只返回该时间及之后修改过的商品, 为 null 表示全量
+     */
+    Cursor<Product> selectForExport(@Param("updatedSince") LocalDateTime updatedSince);
+}
@@ -0,0 +1,27 @@
+package com.example.mall.module.product.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.mall.module.product.entity.ProductSales;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ProductSalesMapper extends BaseMapper<ProductSales> {
+
+    /**
+     * 批量累加销量增量, 不存在的商品插入新行
+     */
+    int upsertBatch(@Param("rows") List<ProductSales> rows);
+
+    /**
+     * 记录已处理的发件箱事件ID, 已存在时忽略
+     * @return 1 表示首次处理, 0 表示已处理过
+     */
+    int insertEvent(@Param("eventId") Long eventId);
+
+    /**
+     * 删除指定时间之前记录的事件ID
+     */
+    int deleteEventsBefore(@Param("before") LocalDateTime before);
+}
@@ -1,7 +1,40 @@
 package com.example.mall.module.product.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.mall.module.product.dto.CategoryNode;
 import com.example.mall.module.product.entity.Category;
 
+import java.util.List;
+import java.util.Set;
+
 public interface CategoryService extends IService<Category> {
-}
\ No newline at end of file
+
+    /**
+     * 分类树 (从内存快照返回, 含每个节点的商品数)
+     */
+    List<CategoryNode> getCategoryTree();
+
+    /**
+     * 分类的直接子节点 (从内存快照返回), parentId 为 null 时返回所有根分类, 分类不存在时返回空列表
+     */
+    List<CategoryNode> getChildren(Long parentId);
+
+    /**
+     * 平铺的分类列表 (从内存快照返回)
+     */
+    List<Category> listCategories();
+
+    /**
+     * 分类及其所有子孙分类的ID, 分类不存在时只包含自身
+     */
+    Set<Long> getSubtreeIds(Long categoryId);
+
+    /**
+     * 新增/修改/删除分类, 成功后分类树快照失效
+     */
+    boolean createCategory(Category category);
+
+    boolean updateCategory(Category category);
+
+    boolean deleteCategory(Long id);
+}
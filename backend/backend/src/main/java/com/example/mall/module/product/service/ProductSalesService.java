@@ -0,0 +1,16 @@
+package com.example.mall.module.product.service;
+
+import com.example.mall.module.product.dto.TopSellerDTO;
+
+import java.util.List;
+
+/**
+ * 商品销量统计 (app.sales.enabled=true 时存在)
+ */
+public interface ProductSalesService {
+
+    /**
+     * 畅销榜 (按已支付数量), categoryId 为空时为全站榜单, 否则包含该分类及其子孙分类的商品
+     */
+    List<TopSellerDTO> top(Long categoryId, int limit);
+}
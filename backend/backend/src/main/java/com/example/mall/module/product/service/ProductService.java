@@ -2,8 +2,81 @@ package com.example.mall.module.product.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.mall.common.api.CursorPage;
+import com.example.mall.module.product.dto.ProductBatchResultDTO;
+import com.example.mall.module.product.dto.ProductCatalog;
+import com.example.mall.module.product.dto.ProductFacetResultDTO;
+import com.example.mall.module.product.dto.ProductSnapshot;
 import com.example.mall.module.product.entity.Product;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 返回 ProductSnapshot 的查询均在响应时从 StockView 合并库存;
+ * stockLevelOnly 为 true 时只返回库存档位 (stock 为 null), 响应只在档位变化时改变, 便于客户端和 HTTP 缓存复用
+ */
 public interface ProductService extends IService<Product> {
-    Page<Product> listProductsByPage(Page<Product> page, String name, Long categoryId);
+    Page<ProductSnapshot> listProductsByPage(Page<Product> page, String name, Long categoryId, boolean stockLevelOnly);
+
+    /**
+     * 游标分页查询商品列表 (不返回 description), cursor 为空表示第一页
+     */
+    CursorPage<ProductSnapshot> listProductsByCursor(String cursor, int size, String name, Long categoryId,
+                                                     boolean withTotal, boolean stockLevelOnly);
+
+    /**
+     * 关键词搜索 (内存倒排索引), 按相关度排序, cursor 为空表示第一页
+     */
+    CursorPage<ProductSnapshot> searchProducts(String keyword, Long categoryId, String cursor, int size, boolean stockLevelOnly);
+
+    /**
+     * 分面筛选 (内存位图索引): 按分类子树、价格区间 (含两端) 和是否有货筛选, 按上架时间倒序分页, 同时返回各维度的商品数
+     */
+    ProductFacetResultDTO facetProducts(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly,
+                                        long page, int size, boolean stockLevelOnly);
+
+    /**
+     * 从商品缓存读取目录信息并合并库存, 商品不存在时返回 null
+     */
+    ProductSnapshot getProductSnapshot(Long id, boolean stockLevelOnly);
+
+    /**
+     * 从商品缓存读取目录信息 (不含库存), 商品不存在时返回 null
+     */
+    ProductCatalog getProductCatalog(Long id);
+
+    /**
+     * 在已读取的目录信息上合并库存
+     */
+    ProductSnapshot getProductSnapshot(ProductCatalog catalog, boolean stockLevelOnly);
+
+    /**
+     * 批量读取商品快照, 缓存未命中的商品用一条 IN 查询加载; 结果保持请求顺序并列出不存在的ID
+     */
+    ProductBatchResultDTO getProductSnapshots(List<Long> ids, boolean stockLevelOnly);
+
+    /**
+     * 新增/修改/删除商品, 写库后同步失效缓存并发布 ProductChangedEvent
+     */
+    boolean createProduct(Product product);
+
+    boolean updateProduct(Product product);
+
+    boolean deleteProduct(Long id);
+
+    /**
+     * 以 NDJSON (每行一个商品) 流式导出商品到输出流, 返回导出条数
+     * @param updatedSince 增量导出的起始修改时间, 为 null 表示全量; 已删除的商品不会出现在增量结果中
+     */
+    long exportProducts(LocalDateTime updatedSince, OutputStream out) throws IOException;
+
+    /**
+     * 商品缓存的命中率等统计
+     */
+    Map<String, Object> getCacheStats();
 }
\ No newline at end of file
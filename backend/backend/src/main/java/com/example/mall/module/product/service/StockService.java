@@ -0,0 +1,47 @@
+package com.example.mall.module.product.service;
+
+import com.example.mall.module.product.entity.Product;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 库存服务
+ */
+public interface StockService {
+
+    /**
+     * 在当前事务内批量扣减库存
+     * @param quantities 商品ID -> 扣减数量
+     * @return 商品ID -> 扣减前锁定的商品快照
+     */
+    Map<Long, Product> deductStock(Map<Long, Integer> quantities);
+
+    /**
+     * 撤销当前事务中的一次扣减, 用于回滚到保存点的场景;
+     * 数据库模式下库存随保存点一起回滚, 无需额外处理
+     */
+    void revertDeduction(Map<Long, Integer> quantities);
+
+    /**
+     * 在当前事务内批量归还库存 (订单取消), 一条语句完成
+     * @param quantities 商品ID -> 归还数量
+     */
+    void restoreStock(Map<Long, Integer> quantities);
+
+    /**
+     * 在当前事务内按商品ID升序锁定一批商品行 (组提交在整批下单前统一加锁); 账本模式下不访问数据库
+     */
+    void lockProducts(Collection<Long> productIds);
+
+    /**
+     * 查询商品当前可用库存, 商品不存在时返回 null
+     * 用于加购等提示性校验: 数据库模式下取自库存视图的短时缓存, 可能短暂滞后, 下单时在行锁下重新校验
+     */
+    Integer getAvailableStock(Long productId);
+
+    /**
+     * 批量查询可用库存, 返回结果中只包含存在的商品; 一致性同 getAvailableStock
+     */
+    Map<Long, Integer> getAvailableStocks(Collection<Long> productIds);
+}
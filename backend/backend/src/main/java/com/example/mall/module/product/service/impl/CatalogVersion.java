@@ -0,0 +1,81 @@
+package com.example.mall.module.product.service.impl;
+
+import com.example.mall.module.product.event.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 商品目录版本号, 与 StockView 的库存版本号一起组成商品列表/分类接口的 ETag
+ * 目录版本随商品增删改和分类变化递增; 库存部分按请求取精确库存版本或档位版本, 只要档位的请求不受普通下单影响.
+ * 调用方应在查询前取版本号: 查询期间发生的变化只会让响应带上旧版本号, 客户端下次请求时版本号不匹配而重新获取,
+ * 不会出现新版本号对应旧数据. 版本号带有进程启动时间前缀, 重启或多副本之间不会误判为未修改.
+ * 版本号只在本进程内递增, 其他副本上的写入不会改变它; 因此 ETag 另带 max-age-ms 的时间窗口编号,
+ * 窗口切换后强制重新获取, 多副本部署时 304 最多滞后一个窗口. 设为 0 时不带窗口, 仅适用于单副本部署.
+ */
+@Component
+public class CatalogVersion {
+
+    @Autowired
+    private StockView stockView;
+
+    @Value("${app.catalog-version.max-age-ms:5000}")
+    private long maxAgeMs;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastModified = System.currentTimeMillis();
+
+    /**
+     * @param stockLevelOnly 响应中只包含库存档位时为 true
+     */
+    public String etag(boolean stockLevelOnly) {
+        return epoch + "-" + version.get() + stockTag(stockLevelOnly);
+    }
+
+    /**
+     * 只含库存部分的版本号, 单个商品详情与商品自身的修改时间组合使用
+     */
+    public String stockEtag(boolean stockLevelOnly) {
+        return epoch + stockTag(stockLevelOnly);
+    }
+
+    /**
+     * 目录或库存最近一次变化的时间 (毫秒)
+     */
+    public long lastModified(boolean stockLevelOnly) {
+        return Math.max(lastModified, stockView.lastModified(stockLevelOnly));
+    }
+
+    /**
+     * 只含目录信息的响应 (如分类树) 使用
+     */
+    public String catalogEtag() {
+        return epoch + "-" + version.get() + window();
+    }
+
+    public long catalogLastModified() {
+        return lastModified;
+    }
+
+    public void bump() {
+        lastModified = System.currentTimeMillis();
+        version.incrementAndGet();
+    }
+
+    private String stockTag(boolean stockLevelOnly) {
+        return (stockLevelOnly ? "-l" : "-s") + stockView.version(stockLevelOnly) + window();
+    }
+
+    private String window() {
+        return maxAgeMs > 0 ? "-w" + Long.toString(System.currentTimeMillis() / maxAgeMs, 36) : "";
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        bump();
+    }
+}
@@ -1,14 +1,152 @@
 package com.example.mall.module.product.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.mall.common.exception.CustomException;
+import com.example.mall.module.product.dto.CategoryNode;
 import com.example.mall.module.product.entity.Category;
+import com.example.mall.module.product.entity.Product;
+import com.example.mall.module.product.event.ProductChangedEvent;
 import com.example.mall.module.product.mapper.CategoryMapper;
+import com.example.mall.module.product.mapper.ProductMapper;
 import com.example.mall.module.product.service.CategoryService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Slf4j
 @Service
 public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> implements CategoryService {
-    // 基础的CRUD操作由ServiceImpl提供，暂无需扩展
-}
\ No newline at end of file
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Value("${app.category-tree.refresh-seconds:300}")
+    private long refreshSeconds;
+
+    // 分类树快照, 分类或商品变化后置为失效, 下次访问时重建; 另按 refresh-seconds 兜底刷新
+    private volatile CategoryTree tree;
+    private volatile long builtAt;
+    private volatile boolean stale = true;
+    private final Object rebuildLock = new Object();
+
+    @Override
+    public List<CategoryNode> getCategoryTree() {
+        return currentTree().roots();
+    }
+
+    @Override
+    public List<CategoryNode> getChildren(Long parentId) {
+        CategoryTree current = currentTree();
+        if (parentId == null) {
+            return current.roots();
+        }
+        CategoryNode node = current.node(parentId);
+        return node == null ? List.of() : node.children();
+    }
+
+    @Override
+    public List<Category> listCategories() {
+        // 返回快照中分类行的副本, 保留创建/更新时间
+        List<Category> rows = currentTree().categories();
+        List<Category> categories = new ArrayList<>(rows.size());
+        for (Category row : rows) {
+            Category category = new Category();
+            BeanUtils.copyProperties(row, category);
+            categories.add(category);
+        }
+        return categories;
+    }
+
+    @Override
+    public Set<Long> getSubtreeIds(Long categoryId) {
+        Set<Long> ids = currentTree().subtreeIds(categoryId);
+        return ids != null ? ids : Set.of(categoryId);
+    }
+
+    @Override
+    public boolean createCategory(Category category) {
+        if (category.getParentId() == null) {
+            category.setParentId(0L);
+        }
+        boolean success = this.save(category);
+        log.info("【数据写入】新增分类操作结果: {}, id={}", success, category.getId());
+        stale = true;
+        catalogVersion.bump();
+        return success;
+    }
+
+    @Override
+    public boolean updateCategory(Category category) {
+        if (category.getParentId() != null && currentTree().isInSubtree(category.getId(), category.getParentId())) {
+            throw new CustomException("不能将分类移动到自身或其子分类下");
+        }
+        boolean success = this.updateById(category);
+        log.info("【数据写入】更新分类'{}'操作结果: {}", category.getId(), success);
+        stale = true;
+        catalogVersion.bump();
+        return success;
+    }
+
+    @Override
+    public boolean deleteCategory(Long id) {
+        boolean success = this.removeById(id);
+        log.info("【数据写入】删除分类'{}'操作结果: {}", id, success);
+        stale = true;
+        catalogVersion.bump();
+        return success;
+    }
+
+    /**
+     * 商品新增/删除/换分类时按事件中的增量调整各分类的商品数, 在内存中生成新快照, 不重新统计;
+     * 计数偏差由 refresh-seconds 的定时重建兜底修正
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getCategoryDeltas().isEmpty()) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            if (tree != null && !stale) {
+                tree = tree.withProductCountDeltas(event.getCategoryDeltas());
+            }
+        }
+    }
+
+    private CategoryTree currentTree() {
+        CategoryTree current = tree;
+        if (current != null && !stale && System.currentTimeMillis() - builtAt < refreshSeconds * 1000) {
+            return current;
+        }
+        synchronized (rebuildLock) {
+            if (tree != null && !stale && System.currentTimeMillis() - builtAt < refreshSeconds * 1000) {
+                return tree;
+            }
+            // 先清除标记再读库, 重建期间发生的变化会让下一次访问再次重建
+            stale = false;
+            List<Category> categories = this.list();
+            Map<Long, Long> productCounts = new HashMap<>();
+            productMapper.selectMaps(new QueryWrapper<Product>()
+                            .select("category_id", "COUNT(*) AS product_count")
+                            .groupBy("category_id"))
+                    .forEach(row -> productCounts.put(((Number) row.get("category_id")).longValue(),
+                            ((Number) row.get("product_count")).longValue()));
+            tree = CategoryTree.build(categories, productCounts);
+            builtAt = System.currentTimeMillis();
+            log.info("【分类树】重建分类树快照, 共{}个分类", categories.size());
+            return tree;
+        }
+    }
+}
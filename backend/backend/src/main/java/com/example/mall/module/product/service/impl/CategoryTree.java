@@ -0,0 +1,147 @@
+package com.example.mall.module.product.service.impl;
+
+import com.example.mall.module.product.dto.CategoryNode;
+import com.example.mall.module.product.entity.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 分类树的不可变快照
+ * 构建时按先序遍历给每个节点编号, 子树就是先序序列中连续的一段, 因此每个节点的子树ID集合
+ * 都预先计算好, 查询时直接返回. 父节点不存在的分类视为顶级分类, 成环的分类从环上断开.
+ */
+public final class CategoryTree {
+
+    // 构建所用的分类行 (含创建/更新时间), 平铺列表直接返回它们
+    private final List<Category> categories;
+    // 分类ID -> 直接挂在该分类下的商品数
+    private final Map<Long, Long> productCounts;
+    private final List<CategoryNode> roots;
+    private final Map<Long, CategoryNode> nodes;
+    private final Map<Long, Set<Long>> subtreeIds;
+
+    private CategoryTree(List<Category> categories, Map<Long, Long> productCounts, List<CategoryNode> roots,
+                         Map<Long, CategoryNode> nodes, Map<Long, Set<Long>> subtreeIds) {
+        this.categories = categories;
+        this.productCounts = productCounts;
+        this.roots = roots;
+        this.nodes = nodes;
+        this.subtreeIds = subtreeIds;
+    }
+
+    /**
+     * @param productCounts 分类ID -> 直接挂在该分类下的商品数
+     */
+    public static CategoryTree build(List<Category> categories, Map<Long, Long> productCounts) {
+        Map<Long, Category> byId = new HashMap<>(categories.size() * 2);
+        categories.forEach(c -> byId.put(c.getId(), c));
+        Map<Long, List<Category>> childrenOf = new HashMap<>();
+        List<Category> topLevel = new ArrayList<>();
+        for (Category category : categories) {
+            if (category.getParentId() == null || !byId.containsKey(category.getParentId())) {
+                topLevel.add(category);
+            } else {
+                childrenOf.computeIfAbsent(category.getParentId(), id -> new ArrayList<>()).add(category);
+            }
+        }
+
+        Builder builder = new Builder(childrenOf, productCounts);
+        List<CategoryNode> roots = new ArrayList<>();
+        topLevel.forEach(c -> roots.add(builder.build(c, 0)));
+        // 环上的分类从任何顶级分类都不可达, 作为顶级分类挂出, 由 visited 截断环
+        for (Category category : categories) {
+            if (!builder.visited.contains(category.getId())) {
+                roots.add(builder.build(category, 0));
+            }
+        }
+
+        List<Long> preorder = Collections.unmodifiableList(builder.preorder);
+        Map<Long, Set<Long>> subtreeIds = new HashMap<>(builder.nodes.size() * 2);
+        builder.nodes.values().forEach(node -> subtreeIds.put(node.id(),
+                Collections.unmodifiableSet(new LinkedHashSet<>(preorder.subList(node.left(), node.right() + 1)))));
+        return new CategoryTree(Collections.unmodifiableList(new ArrayList<>(categories)),
+                Collections.unmodifiableMap(new HashMap<>(productCounts)), Collections.unmodifiableList(roots), Collections.unmodifiableMap(builder.nodes),
+                Collections.unmodifiableMap(subtreeIds));
+    }
+
+    /**
+     * 构建时的分类行, 顺序与查询结果一致; 快照内共享, 调用方不得修改
+     */
+    public List<Category> categories() {
+        return categories;
+    }
+
+    /**
+     * 按商品数变化生成新快照, 分类结构不变, 不访问数据库
+     * @param deltas 分类ID -> 直接挂在该分类下的商品数变化
+     */
+    public CategoryTree withProductCountDeltas(Map<Long, Integer> deltas) {
+        Map<Long, Long> counts = new HashMap<>(productCounts);
+        deltas.forEach((categoryId, delta) -> counts.merge(categoryId, (long) delta, Long::sum));
+        return build(categories, counts);
+    }
+
+    public List<CategoryNode> roots() {
+        return roots;
+    }
+
+    public CategoryNode node(Long id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * 分类及其所有子孙分类的ID, 分类不存在时返回 null
+     */
+    public Set<Long> subtreeIds(Long id) {
+        return subtreeIds.get(id);
+    }
+
+    /**
+     * candidate 是否为 ancestor 本身或其子孙
+     */
+    public boolean isInSubtree(Long ancestor, Long candidate) {
+        CategoryNode a = nodes.get(ancestor);
+        CategoryNode c = nodes.get(candidate);
+        return a != null && c != null && a.left() <= c.left() && c.left() <= a.right();
+    }
+
+    private static final class Builder {
+        private final Map<Long, List<Category>> childrenOf;
+        private final Map<Long, Long> productCounts;
+        private final Set<Long> visited = new LinkedHashSet<>();
+        private final List<Long> preorder = new ArrayList<>();
+        private final Map<Long, CategoryNode> nodes = new HashMap<>();
+
+        private Builder(Map<Long, List<Category>> childrenOf, Map<Long, Long> productCounts) {
+            this.childrenOf = childrenOf;
+            this.productCounts = productCounts;
+        }
+
+        private CategoryNode build(Category category, int depth) {
+            visited.add(category.getId());
+            int left = preorder.size();
+            preorder.add(category.getId());
+            List<CategoryNode> children = new ArrayList<>();
+            long ownCount = productCounts.getOrDefault(category.getId(), 0L);
+            long totalCount = ownCount;
+            for (Category child : childrenOf.getOrDefault(category.getId(), List.of())) {
+                if (visited.contains(child.getId())) {
+                    continue;
+                }
+                CategoryNode childNode = build(child, depth + 1);
+                children.add(childNode);
+                totalCount += childNode.totalProductCount();
+            }
+            CategoryNode node = new CategoryNode(category.getId(), category.getName(), category.getParentId(),
+                    left, preorder.size() - 1, depth, ownCount, totalCount, Collections.unmodifiableList(children));
+            nodes.put(node.id(), node);
+            return node;
+        }
+    }
+}
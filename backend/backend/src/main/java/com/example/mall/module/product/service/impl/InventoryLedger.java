@@ -0,0 +1,262 @@
+package com.example.mall.module.product.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.example.mall.module.product.entity.Product;
+import com.example.mall.module.product.mapper.ProductMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 内存库存账本 (app.inventory.mode=ledger 时启用)
+ * 每个商品一个原子计数器, 预占库存通过CAS完成, 不再争抢 products 表的行锁;
+ * 预占在下单事务提交后才计入 pending, 由定时任务批量回写到 products.stock,
+ * 因此回写任务不会把未提交 (可能回滚) 的预占写入数据库.
+ * 不变式: 账本可用库存 = products.stock + pending - 未提交的预占
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.inventory.mode", havingValue = "ledger")
+public class InventoryLedger {
+
+    private static final int FLUSH_CHUNK_SIZE = 500;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    private final ConcurrentHashMap<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, AtomicInteger> pending = new ConcurrentHashMap<>();
+    // 已预占但下单事务尚未结束的数量, 对账时扣除
+    private final ConcurrentHashMap<Long, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    // 上一轮对账发现的偏差, 连续两轮一致才修正 (仅在持有 flushLock 时访问)
+    private final Map<Long, Integer> lastDrift = new HashMap<>();
+    private final Object flushLock = new Object();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        synchronized (flushLock) {
+            List<Product> rows = selectAllStock();
+            rows.forEach(p -> available.put(p.getId(), new AtomicInteger(p.getStock())));
+            log.info("【库存账本】从products表加载 {} 个商品库存", rows.size());
+        }
+    }
+
+    /**
+     * 查询可用库存, 商品不存在时返回 null
+     */
+    public Integer getAvailable(Long productId) {
+        AtomicInteger counter = counter(productId);
+        return counter == null ? null : counter.get();
+    }
+
+    /**
+     * 按商品ID顺序预占库存, 全部成功或全部不生效;
+     * 预占只扣减账本, 事务提交后调用 {@link #commit}, 未提交调用 {@link #cancel}
+     * @return 库存不足的商品ID -> 当前可用库存 (商品不存在为0), 为空表示预占成功
+     */
+    public Map<Long, Integer> reserve(SortedMap<Long, Integer> quantities) {
+        Map<Long, Integer> reserved = new LinkedHashMap<>();
+        Map<Long, Integer> shortages = new LinkedHashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            AtomicInteger counter = counter(productId);
+            if (counter == null) {
+                shortages.put(productId, 0);
+                return;
+            }
+            int current;
+            do {
+                current = counter.get();
+                if (current < quantity) {
+                    shortages.put(productId, current);
+                    return;
+                }
+            } while (!counter.compareAndSet(current, current - quantity));
+            reserved.put(productId, quantity);
+        });
+
+        if (!shortages.isEmpty()) {
+            reserved.forEach((productId, quantity) -> available.get(productId).addAndGet(quantity));
+            return shortages;
+        }
+        reserved.forEach((productId, quantity) -> inFlightOf(productId).addAndGet(quantity));
+        return shortages;
+    }
+
+    /**
+     * 下单事务已提交: 预占转为待回写的扣减
+     */
+    public void commit(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            pendingOf(productId).addAndGet(-quantity);
+            inFlightOf(productId).addAndGet(-quantity);
+        });
+    }
+
+    /**
+     * 撤销未提交的预占 (下单事务回滚或预占被撤销时调用), 不涉及数据库
+     */
+    public void cancel(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            AtomicInteger counter = available.get(productId);
+            if (counter != null) {
+                counter.addAndGet(quantity);
+            }
+            inFlightOf(productId).addAndGet(-quantity);
+        });
+    }
+
+    /**
+     * 归还已提交扣减的库存 (取消订单等事务提交后调用)
+     */
+    public void release(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            AtomicInteger counter = available.get(productId);
+            if (counter != null) {
+                counter.addAndGet(quantity);
+            }
+            pendingOf(productId).addAndGet(quantity);
+        });
+    }
+
+    /**
+     * 管理员编辑或导入直接设置可用库存, 与账本当前值的差额计入 pending 由回写任务写入数据库;
+     * 调用方需在写商品的事务提交后调用, 且不再直接写 products.stock
+     */
+    public void overwrite(Map<Long, Integer> stocks) {
+        stocks.forEach((productId, stock) -> {
+            AtomicInteger counter = counter(productId);
+            if (counter == null) {
+                return;
+            }
+            int current = counter.getAndSet(stock);
+            pendingOf(productId).addAndGet(stock - current);
+        });
+        synchronized (flushLock) {
+            lastDrift.keySet().removeAll(stocks.keySet());
+        }
+        log.info("【库存账本】直接设置 {} 个商品的库存", stocks.size());
+    }
+
+    /**
+     * 将累积的库存增量批量回写到数据库
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.flush-interval-ms:200}")
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Long, Integer> deltas = new HashMap<>();
+            pending.forEach((productId, delta) -> {
+                int value = delta.getAndSet(0);
+                if (value != 0) {
+                    deltas.put(productId, value);
+                }
+            });
+            if (deltas.isEmpty()) {
+                return;
+            }
+
+            List<Long> productIds = new ArrayList<>(deltas.keySet());
+            for (int from = 0; from < productIds.size(); from += FLUSH_CHUNK_SIZE) {
+                Map<Long, Integer> chunk = new HashMap<>();
+                productIds.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, productIds.size()))
+                        .forEach(id -> chunk.put(id, deltas.get(id)));
+                try {
+                    productMapper.adjustStockBatch(chunk);
+                } catch (Exception e) {
+                    // 回写失败, 增量放回 pending 等待下一轮
+                    log.error("【库存账本】回写库存失败, 等待重试: {}", e.getMessage());
+                    chunk.forEach((id, value) -> pendingOf(id).addAndGet(value));
+                }
+            }
+            log.info("【库存账本】回写 {} 个商品的库存增量", deltas.size());
+        }
+    }
+
+    /**
+     * 对账: 比较账本与 products.stock + pending - 未提交的预占, 连续两轮出现相同偏差时以数据库为准修正
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.reconcile-interval-ms:60000}",
+            initialDelayString = "${app.inventory.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        synchronized (flushLock) {
+            List<Product> rows = selectAllStock();
+            Set<Long> existing = new HashSet<>(rows.size() * 2);
+            int drifted = 0;
+            for (Product row : rows) {
+                existing.add(row.getId());
+                AtomicInteger counter = available.get(row.getId());
+                if (counter == null) {
+                    available.putIfAbsent(row.getId(), new AtomicInteger(row.getStock() + pendingValue(row.getId()) - value(inFlight, row.getId())));
+                    continue;
+                }
+                int drift = counter.get() - (row.getStock() + pendingValue(row.getId()) - value(inFlight, row.getId()));
+                if (drift == 0) {
+                    lastDrift.remove(row.getId());
+                    continue;
+                }
+                drifted++;
+                if (Integer.valueOf(drift).equals(lastDrift.get(row.getId()))) {
+                    counter.addAndGet(-drift);
+                    lastDrift.remove(row.getId());
+                    log.warn("【库存账本】商品'{}'库存偏差{}, 已按数据库修正", row.getId(), drift);
+                } else {
+                    lastDrift.put(row.getId(), drift);
+                }
+            }
+            // 已删除的商品移出账本
+            available.keySet().removeIf(id -> !existing.contains(id) && pendingValue(id) == 0 && value(inFlight, id) == 0);
+            lastDrift.keySet().retainAll(existing);
+            log.info("【库存账本】对账完成, 共{}个商品, 发现偏差{}个", rows.size(), drifted);
+        }
+    }
+
+    private AtomicInteger counter(Long productId) {
+        AtomicInteger counter = available.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        // 新上架的商品按需加载
+        Product product = productMapper.selectById(productId);
+        if (product == null) {
+            return null;
+        }
+        return available.computeIfAbsent(productId, id -> new AtomicInteger(product.getStock()));
+    }
+
+    private AtomicInteger pendingOf(Long productId) {
+        return pending.computeIfAbsent(productId, id -> new AtomicInteger());
+    }
+
+    private AtomicInteger inFlightOf(Long productId) {
+        return inFlight.computeIfAbsent(productId, id -> new AtomicInteger());
+    }
+
+    private int pendingValue(Long productId) {
+        return value(pending, productId);
+    }
+
+    private static int value(Map<Long, AtomicInteger> counters, Long productId) {
+        AtomicInteger counter = counters.get(productId);
+        return counter == null ? 0 : counter.get();
+    }
+
+    private List<Product> selectAllStock() {
+        LambdaQueryWrapper<Product> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(Product::getId, Product::getStock);
+        return productMapper.selectList(queryWrapper);
+    }
+}
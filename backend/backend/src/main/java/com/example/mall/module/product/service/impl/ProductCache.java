@@ -0,0 +1,95 @@
+package com.example.mall.module.product.service.impl;
+
+import com.example.mall.module.product.dto.ProductCatalog;
+import com.example.mall.module.product.mapper.ProductMapper;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 进程内商品目录缓存 (read-through)
+ * 按数量上限和写入后过期时间淘汰, 未命中时从数据库加载, 批量查询一次加载所有未命中的商品;
+ * 不存在的商品也会被缓存 (空值), 避免重复穿透. 商品的增删改由 ProductService 同步失效.
+ * 只缓存目录信息, 不含库存, 下单扣库存不会使缓存失效; 库存由 StockView 单独提供.
+ */
+@Slf4j
+@Component
+public class ProductCache {
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Value("${app.product-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${app.product-cache.expire-after-write-seconds:600}")
+    private long expireAfterWriteSeconds;
+
+    private LoadingCache<Long, Optional<ProductCatalog>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Optional<ProductCatalog> load(Long id) {
+                        return Optional.ofNullable(productMapper.selectById(id)).map(ProductCatalog::from);
+                    }
+
+                    @Override
+                    public Map<Long, Optional<ProductCatalog>> loadAll(Set<? extends Long> ids) {
+                        Map<Long, Optional<ProductCatalog>> loaded = new HashMap<>(ids.size() * 2);
+                        ids.forEach(id -> loaded.put(id, Optional.empty()));
+                        productMapper.selectBatchIds(ids)
+                                .forEach(p -> loaded.put(p.getId(), Optional.of(ProductCatalog.from(p))));
+                        log.info("【商品缓存】批量加载 {} 个商品", ids.size());
+                        return loaded;
+                    }
+                });
+        log.info("【商品缓存】已启用, 容量: {}, 过期时间: {}s", maximumSize, expireAfterWriteSeconds);
+    }
+
+    /**
+     * 查询商品目录信息, 商品不存在时返回 null
+     */
+    public ProductCatalog get(Long id) {
+        return cache.get(id).orElse(null);
+    }
+
+    /**
+     * 批量查询, 返回结果中只包含存在的商品
+     */
+    public Map<Long, ProductCatalog> getAll(Collection<Long> ids) {
+        Map<Long, ProductCatalog> result = new HashMap<>(ids.size() * 2);
+        cache.getAll(ids).forEach((id, snapshot) -> snapshot.ifPresent(s -> result.put(id, s)));
+        return result;
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.mall.module.product.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.example.mall.module.product.entity.Product;
+import com.example.mall.module.product.event.ProductChangedEvent;
+import com.example.mall.module.product.event.ProductStockChangedEvent;
+import com.example.mall.module.product.mapper.ProductMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品分面筛选的内存位图索引 (app.facet.enabled=true 时启用)
+ * 以商品ID作为位图下标 (自增ID稠密, Roaring 压缩效果好), 每个分类一个位图, 价格按 app.facet.price-buckets 分档各一个位图,
+ * 另有一个有货位图; 筛选条件和分面计数都由位图的与/或/基数运算得到, 数据库只用于加载最终一页的商品.
+ * 启动时全量构建, 之后随商品增删改和有货/无货切换增量更新.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.facet.enabled", havingValue = "true")
+public class ProductFacetIndex {
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private StockView stockView;
+
+    // 价格分档的下边界 (元), 第一档从0开始, 最后一档不设上限
+    @Value("${app.facet.price-buckets:50,100,200,500,1000,2000,5000}")
+    private BigDecimal[] priceBoundaries;
+
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final RoaringBitmap inStock = new RoaringBitmap();
+    private final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+    private RoaringBitmap[] byPriceBucket;
+    // 商品ID -> 分类ID / 价格(分), 用于更新时从旧位图中移除以及价格区间边缘档位的精确过滤
+    private final Map<Integer, Long> categories = new HashMap<>();
+    private final Map<Integer, Long> pricesInCents = new HashMap<>();
+    private long[] boundariesInCents;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        boundariesInCents = new long[priceBoundaries.length + 1];
+        for (int i = 0; i < priceBoundaries.length; i++) {
+            boundariesInCents[i + 1] = toCents(priceBoundaries[i]);
+        }
+        Arrays.sort(boundariesInCents);
+        byPriceBucket = new RoaringBitmap[boundariesInCents.length];
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            byPriceBucket[i] = new RoaringBitmap();
+        }
+
+        long lastId = 0;
+        List<Product> page;
+        do {
+            page = productMapper.selectList(new LambdaQueryWrapper<Product>()
+                    .select(Product::getId, Product::getCategoryId, Product::getPrice, Product::getStock)
+                    .gt(Product::getId, lastId)
+                    .orderByAsc(Product::getId)
+                    .last("LIMIT " + LOAD_PAGE_SIZE));
+            lock.writeLock().lock();
+            try {
+                page.forEach(product -> put(product, product.getStock()));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!page.isEmpty()) {
+                lastId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+        lock.writeLock().lock();
+        try {
+            all.runOptimize();
+            inStock.runOptimize();
+            byCategory.values().forEach(RoaringBitmap::runOptimize);
+            Arrays.stream(byPriceBucket).forEach(RoaringBitmap::runOptimize);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("【分面索引】构建完成, 商品{}个, 分类{}个, 价格档位{}个, 位图占用{}KB",
+                all.getCardinality(), byCategory.size(), byPriceBucket.length, sizeInBytes() / 1024);
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        Map<Long, Product> products = new HashMap<>();
+        Map<Long, Integer> stocks = Map.of();
+        if (event.getType() != ProductChangedEvent.Type.DELETED) {
+            productMapper.selectBatchIds(event.getProductIds()).forEach(product -> products.put(product.getId(), product));
+            stocks = stockView.getStocks(products.keySet());
+        }
+        lock.writeLock().lock();
+        try {
+            for (Long productId : event.getProductIds()) {
+                remove(ordinal(productId));
+                Product product = products.get(productId);
+                if (product != null) {
+                    put(product, stocks.get(productId));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onStockChanged(ProductStockChangedEvent event) {
+        Map<Long, Integer> stocks = stockView.getStocks(event.getProductIds());
+        lock.writeLock().lock();
+        try {
+            for (Long productId : event.getProductIds()) {
+                int ordinal = ordinal(productId);
+                if (!all.contains(ordinal)) {
+                    continue;
+                }
+                Integer stock = stocks.get(productId);
+                if (stock != null && stock > 0) {
+                    inStock.add(ordinal);
+                } else {
+                    inStock.remove(ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按条件筛选并统计分面
+     * @param categoryIds 分类及其子孙分类, 为 null 表示不限
+     * @param minPrice    价格下限 (含), 为 null 表示不限
+     * @param maxPrice    价格上限 (含), 为 null 表示不限
+     * @param inStockOnly 只要有货的商品
+     * @param facetCategories 需要统计商品数的分类: 分类ID -> 该分类及其子孙分类
+     * @param offset      结果按商品ID倒序 (即上架时间倒序) 跳过的条数
+     * @param limit       返回的商品ID个数
+     */
+    public Result query(Collection<Long> categoryIds, BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly,
+                        Map<Long, Collection<Long>> facetCategories, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap categoryFilter = categoryIds == null ? all : union(categoryIds);
+            RoaringBitmap priceFilter = minPrice == null && maxPrice == null ? all
+                    : priceRange(minPrice == null ? 0 : toCents(minPrice), maxPrice == null ? Long.MAX_VALUE : toCents(maxPrice));
+            RoaringBitmap stockFilter = inStockOnly ? inStock : all;
+
+            // 每个维度的分面计数只应用其他维度的条件, 便于客户端展示切换到该维度其他取值后的结果数
+            RoaringBitmap withoutPrice = RoaringBitmap.and(categoryFilter, stockFilter);
+            RoaringBitmap withoutStock = RoaringBitmap.and(categoryFilter, priceFilter);
+            RoaringBitmap matched = RoaringBitmap.and(withoutPrice, priceFilter);
+
+            Map<Long, Long> categoryCounts = new HashMap<>();
+            RoaringBitmap withoutCategory = RoaringBitmap.and(priceFilter, stockFilter);
+            facetCategories.forEach((categoryId, subtree) ->
+                    categoryCounts.put(categoryId, (long) RoaringBitmap.andCardinality(withoutCategory, union(subtree))));
+
+            List<PriceBucketCount> priceCounts = new ArrayList<>(byPriceBucket.length);
+            for (int i = 0; i < byPriceBucket.length; i++) {
+                priceCounts.add(new PriceBucketCount(
+                        fromCents(boundariesInCents[i]),
+                        i + 1 < boundariesInCents.length ? fromCents(boundariesInCents[i + 1]) : null,
+                        RoaringBitmap.andCardinality(withoutPrice, byPriceBucket[i])));
+            }
+
+            long inStockCount = RoaringBitmap.andCardinality(withoutStock, inStock);
+            long total = matched.getLongCardinality();
+            return new Result(page(matched, offset, limit), total, categoryCounts, priceCounts,
+                    inStockCount, withoutStock.getLongCardinality() - inStockCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 位图占用的字节数
+     */
+    public long sizeInBytes() {
+        lock.readLock().lock();
+        try {
+            long size = all.getLongSizeInBytes() + inStock.getLongSizeInBytes();
+            for (RoaringBitmap bitmap : byCategory.values()) {
+                size += bitmap.getLongSizeInBytes();
+            }
+            for (RoaringBitmap bitmap : byPriceBucket) {
+                size += bitmap.getLongSizeInBytes();
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按ID倒序取 [offset, offset + limit) 位置的商品ID, 用 select 直接定位, 不逐个跳过
+     */
+    private static List<Long> page(RoaringBitmap matched, long offset, int limit) {
+        long cardinality = matched.getLongCardinality();
+        List<Long> ids = new ArrayList<>(limit);
+        for (long rank = cardinality - 1 - offset; rank >= 0 && ids.size() < limit; rank--) {
+            ids.add(Integer.toUnsignedLong(matched.select((int) rank)));
+        }
+        return ids;
+    }
+
+    private RoaringBitmap union(Collection<Long> categoryIds) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (Long categoryId : categoryIds) {
+            RoaringBitmap bitmap = byCategory.get(categoryId);
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 完全落在区间内的档位直接取并集, 只与区间部分重叠的边缘档位逐个比较价格
+     */
+    private RoaringBitmap priceRange(long minCents, long maxCents) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            long low = boundariesInCents[i];
+            long high = i + 1 < boundariesInCents.length ? boundariesInCents[i + 1] - 1 : Long.MAX_VALUE;
+            if (high < minCents || low > maxCents) {
+                continue;
+            }
+            if (low >= minCents && high <= maxCents) {
+                result.or(byPriceBucket[i]);
+                continue;
+            }
+            IntIterator iterator = byPriceBucket[i].getIntIterator();
+            while (iterator.hasNext()) {
+                int ordinal = iterator.next();
+                long price = pricesInCents.get(ordinal);
+                if (price >= minCents && price <= maxCents) {
+                    result.add(ordinal);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 调用方需持有写锁
+     */
+    private void put(Product product, Integer stock) {
+        int ordinal = ordinal(product.getId());
+        long price = toCents(product.getPrice());
+        all.add(ordinal);
+        byCategory.computeIfAbsent(product.getCategoryId(), id -> new RoaringBitmap()).add(ordinal);
+        byPriceBucket[bucketOf(price)].add(ordinal);
+        if (stock != null && stock > 0) {
+            inStock.add(ordinal);
+        }
+        categories.put(ordinal, product.getCategoryId());
+        pricesInCents.put(ordinal, price);
+    }
+
+    /**
+     * 调用方需持有写锁
+     */
+    private void remove(int ordinal) {
+        if (!all.contains(ordinal)) {
+            return;
+        }
+        all.remove(ordinal);
+        inStock.remove(ordinal);
+        Long categoryId = categories.remove(ordinal);
+        RoaringBitmap categoryBitmap = byCategory.get(categoryId);
+        if (categoryBitmap != null) {
+            categoryBitmap.remove(ordinal);
+            if (categoryBitmap.isEmpty()) {
+                byCategory.remove(categoryId);
+            }
+        }
+        byPriceBucket[bucketOf(pricesInCents.remove(ordinal))].remove(ordinal);
+    }
+
+    private int bucketOf(long priceInCents) {
+        int index = Arrays.binarySearch(boundariesInCents, priceInCents);
+        return Math.max(index >= 0 ? index : -index - 2, 0);
+    }
+
+    private static int ordinal(Long productId) {
+        if (productId < 0 || productId > 0xFFFFFFFFL) {
+            throw new IllegalStateException("商品ID超出位图索引范围: " + productId);
+        }
+        return (int) productId.longValue();
+    }
+
+    private static long toCents(BigDecimal price) {
+        return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public record PriceBucketCount(BigDecimal min, BigDecimal max, long count) {
+    }
+
+    /**
+     * @param productIds     当前页的商品ID
+     * @param total          满足全部条件的商品数
+     * @param categoryCounts 分类ID -> 该分类子树中满足其余条件的商品数
+     * @param priceCounts    每个价格档位中满足其余条件的商品数
+     */
+    public record Result(List<Long> productIds,
+                         long total,
+                         Map<Long, Long> categoryCounts,
+                         List<PriceBucketCount> priceCounts,
+                         long inStockCount,
+                         long outOfStockCount) {
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.mall.module.product.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.example.mall.common.exception.CustomException;
+import com.example.mall.common.util.CsvReader;
+import com.example.mall.module.product.dto.ProductImportResultDTO;
+import com.example.mall.module.product.entity.Category;
+import com.example.mall.module.product.entity.Product;
+import com.example.mall.module.product.event.ProductChangedEvent;
+import com.example.mall.module.product.mapper.ProductMapper;
+import com.example.mall.module.product.service.CategoryService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 商品批量导入: 边读边校验, 每攒够 chunk-size 行用一条多行 INSERT (带ID的行用 INSERT ... ON DUPLICATE KEY UPDATE)
+ * 在一个事务中写入, 内存中只保留当前批次和有限条错误明细, 与文件大小无关.
+ * 某一批写库失败时逐行重试以定位出错的行, 其余行照常写入.
+ * 库存账本模式 (app.inventory.mode=ledger) 下按ID覆盖的行不直接写 products.stock, 提交后把库存写入账本由账本回写;
+ * 新商品照常写入初始库存.
+ */
+@Slf4j
+@Component
+public class ProductImporter {
+
+    private static final int MAX_NAME_LENGTH = 100;
+    private static final int MAX_IMAGE_URL_LENGTH = 255;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    // CSV 表头 (不区分大小写, 下划线和驼峰均可) -> 字段
+    private static final Map<String, String> CSV_COLUMNS = Map.of(
+            "id", "id",
+            "categoryid", "categoryId",
+            "name", "name",
+            "description", "description",
+            "price", "price",
+            "stock", "stock",
+            "imageurl", "imageUrl");
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductCache productCache;
+
+    // 仅在 app.inventory.mode=ledger 时存在
+    @Autowired(required = false)
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.product-import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.product-import.max-errors:1000}")
+    private int maxErrors;
+
+    /**
+     * 导入 CSV, 第一行为表头; 必需列: categoryId, name, price, stock, 可选列: id, description, imageUrl
+     */
+    public ProductImportResultDTO importCsv(Reader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            throw new CustomException("导入文件为空");
+        }
+        String[] fields = new String[header.size()];
+        for (int i = 0; i < header.size(); i++) {
+            String column = header.get(i).replace("\uFEFF", "").replace("_", "").trim().toLowerCase(Locale.ROOT);
+            fields[i] = CSV_COLUMNS.get(column);
+            if (fields[i] == null) {
+                throw new CustomException("未知的列: " + header.get(i));
+            }
+        }
+        for (String required : List.of("categoryId", "name", "price", "stock")) {
+            if (!List.of(fields).contains(required)) {
+                throw new CustomException("缺少必需的列: " + required);
+            }
+        }
+
+        Batch batch = new Batch();
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            int line = csv.getRecordLine();
+            batch.result.setTotal(batch.result.getTotal() + 1);
+            if (record.size() != fields.length) {
+                batch.reject(line, "列数为" + record.size() + ", 与表头的" + fields.length + "列不一致");
+                continue;
+            }
+            Product product;
+            try {
+                product = fromCsv(fields, record);
+            } catch (IllegalArgumentException e) {
+                batch.reject(line, e.getMessage());
+                continue;
+            }
+            batch.add(line, product);
+        }
+        return batch.finish("CSV");
+    }
+
+    /**
+     * 导入 NDJSON, 每行一个商品 JSON 对象, 字段同 Product
+     */
+    public ProductImportResultDTO importNdjson(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        Batch batch = new Batch();
+        String text;
+        int line = 0;
+        while ((text = lines.readLine()) != null) {
+            line++;
+            if (!StringUtils.hasText(text)) {
+                continue;
+            }
+            batch.result.setTotal(batch.result.getTotal() + 1);
+            Product product;
+            try {
+                product = objectMapper.readValue(text, Product.class);
+            } catch (JsonProcessingException e) {
+                batch.reject(line, "JSON 格式错误: " + e.getOriginalMessage());
+                continue;
+            }
+            batch.add(line, product);
+        }
+        return batch.finish("NDJSON");
+    }
+
+    private Product fromCsv(String[] fields, List<String> record) {
+        Product product = new Product();
+        for (int i = 0; i < fields.length; i++) {
+            String value = record.get(i).trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            try {
+                switch (fields[i]) {
+                    case "id" -> product.setId(Long.valueOf(value));
+                    case "categoryId" -> product.setCategoryId(Long.valueOf(value));
+                    case "name" -> product.setName(value);
+                    case "description" -> product.setDescription(value);
+                    case "price" -> product.setPrice(new BigDecimal(value));
+                    case "stock" -> product.setStock(Integer.valueOf(value));
+                    case "imageUrl" -> product.setImageUrl(value);
+                    default -> throw new IllegalStateException(fields[i]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(fields[i] + " 不是有效的数字: " + value);
+            }
+        }
+        return product;
+    }
+
+    /**
+     * 校验单行数据, 通过返回 null
+     */
+    private String validate(Product product, Set<Long> categoryIds) {
+        if (product.getId() != null && product.getId() <= 0) {
+            return "id 必须大于0";
+        }
+        if (product.getCategoryId() == null) {
+            return "categoryId 不能为空";
+        }
+        if (!categoryIds.contains(product.getCategoryId())) {
+            return "分类'" + product.getCategoryId() + "'不存在";
+        }
+        if (!StringUtils.hasText(product.getName())) {
+            return "name 不能为空";
+        }
+        if (product.getName().length() > MAX_NAME_LENGTH) {
+            return "name 不能超过" + MAX_NAME_LENGTH + "个字符";
+        }
+        if (product.getPrice() == null) {
+            return "price 不能为空";
+        }
+        if (product.getPrice().signum() < 0 || product.getPrice().compareTo(MAX_PRICE) > 0 || product.getPrice().scale() > 2) {
+            return "price 必须在 0 ~ " + MAX_PRICE + " 之间且最多两位小数";
+        }
+        if (product.getStock() == null) {
+            return "stock 不能为空";
+        }
+        if (product.getStock() < 0) {
+            return "stock 不能小于0";
+        }
+        if (product.getImageUrl() != null && product.getImageUrl().length() > MAX_IMAGE_URL_LENGTH) {
+            return "imageUrl 不能超过" + MAX_IMAGE_URL_LENGTH + "个字符";
+        }
+        return null;
+    }
+
+    /**
+     * 当前批次和累计结果
+     */
+    private final class Batch {
+        private final ProductImportResultDTO result = new ProductImportResultDTO();
+        private final List<Row> rows = new ArrayList<>(chunkSize);
+        private final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        // 导入开始时取一次分类ID, 避免每批写入后分类树因商品数变化而反复重建
+        private final Set<Long> categoryIds = categoryService.listCategories().stream()
+                .map(Category::getId)
+                .collect(Collectors.toSet());
+
+        private void add(int line, Product product) {
+            String error = validate(product, categoryIds);
+            if (error != null) {
+                reject(line, error);
+                return;
+            }
+            // 创建/更新时间由数据库维护
+            product.setCreateTime(null);
+            product.setUpdateTime(null);
+            rows.add(new Row(line, product));
+            if (rows.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void reject(int line, String message) {
+            result.setFailed(result.getFailed() + 1);
+            if (result.getErrors().size() < maxErrors) {
+                result.getErrors().add(new ProductImportResultDTO.RowError(line, message));
+            } else {
+                result.setErrorsTruncated(true);
+            }
+        }
+
+        private void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            // 无ID的行写入时会回填自增ID, 事务回滚后需清除, 否则逐行重试时会被当作按ID写入
+            List<Row> generated = new ArrayList<>();
+            for (Row row : rows) {
+                if (row.product.getId() == null) {
+                    generated.add(row);
+                }
+            }
+            try {
+                write(rows);
+            } catch (DataAccessException e) {
+                log.warn("【商品导入】第{}~{}行批量写入失败, 改为逐行写入: {}",
+                        rows.get(0).line, rows.get(rows.size() - 1).line, e.getMostSpecificCause().getMessage());
+                generated.forEach(row -> row.product.setId(null));
+                for (Row row : rows) {
+                    try {
+                        write(List.of(row));
+                    } catch (DataAccessException rowError) {
+                        reject(row.line, "写入失败: " + rowError.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+            rows.clear();
+        }
+
+        /**
+         * 一批数据在一个事务中写入, 提交后失效缓存, 新增和覆盖的商品各发布一个变更事件
+         */
+        private void write(List<Row> chunk) {
+            List<Product> inserts = new ArrayList<>();
+            List<Product> upserts = new ArrayList<>();
+            for (Row row : chunk) {
+                (row.product.getId() == null ? inserts : upserts).add(row.product);
+            }
+            // 按ID写入的行覆盖前的分类, 用于调整分类树的商品数
+            Map<Long, Long> categoriesBefore = new HashMap<>();
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!inserts.isEmpty()) {
+                    productMapper.insertBatch(inserts);
+                }
+                if (!upserts.isEmpty()) {
+                    List<Long> upsertIds = new ArrayList<>(upserts.size());
+                    upserts.forEach(product -> upsertIds.add(product.getId()));
+                    productMapper.selectList(new LambdaQueryWrapper<Product>()
+                                    .select(Product::getId, Product::getCategoryId)
+                                    .in(Product::getId, upsertIds))
+                            .forEach(product -> categoriesBefore.put(product.getId(), product.getCategoryId()));
+                    productMapper.upsertBatch(upserts, inventoryLedger == null);
+                }
+            });
+            if (inventoryLedger != null && !upserts.isEmpty()) {
+                Map<Long, Integer> stocks = new HashMap<>(upserts.size() * 2);
+                upserts.forEach(product -> stocks.put(product.getId(), product.getStock()));
+                inventoryLedger.overwrite(stocks);
+            }
+            result.setInserted(result.getInserted() + inserts.size());
+            result.setUpserted(result.getUpserted() + upserts.size());
+            productChanged(inserts, ProductChangedEvent.Type.CREATED, Map.of());
+            productChanged(upserts, ProductChangedEvent.Type.UPDATED, categoriesBefore);
+        }
+
+        /**
+         * @param categoriesBefore 写入前已存在的商品ID -> 原分类, 不在其中的商品视为新增
+         */
+        private void productChanged(List<Product> products, ProductChangedEvent.Type type, Map<Long, Long> categoriesBefore) {
+            if (products.isEmpty()) {
+                return;
+            }
+            List<Long> productIds = new ArrayList<>(products.size());
+            Map<Long, Integer> categoryDeltas = new HashMap<>();
+            for (Product product : products) {
+                productCache.invalidate(product.getId());
+                productIds.add(product.getId());
+                Long before = categoriesBefore.get(product.getId());
+                if (!product.getCategoryId().equals(before)) {
+                    categoryDeltas.merge(product.getCategoryId(), 1, Integer::sum);
+                    if (before != null) {
+                        categoryDeltas.merge(before, -1, Integer::sum);
+                    }
+                }
+            }
+            categoryDeltas.values().removeIf(delta -> delta == 0);
+            eventPublisher.publishEvent(new ProductChangedEvent(productIds, type, categoryDeltas));
+        }
+
+        private ProductImportResultDTO finish(String format) {
+            flush();
+            log.info("【商品导入】{}导入完成: 共{}行, 新增{}行, 按ID写入{}行, 失败{}行",
+                    format, result.getTotal(), result.getInserted(), result.getUpserted(), result.getFailed());
+            return result;
+        }
+    }
+
+    private record Row(int line, Product product) {
+    }
+}
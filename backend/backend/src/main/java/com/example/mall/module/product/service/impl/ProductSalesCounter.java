@@ -0,0 +1,310 @@
+package com.example.mall.module.product.service.impl;
+
+import com.example.mall.module.order.dto.OrderCreatedEventDTO;
+import com.example.mall.module.order.entity.Order;
+import com.example.mall.module.order.event.OrderCancelledEvent;
+import com.example.mall.module.order.event.OrderPaidEvent;
+import com.example.mall.module.order.event.OrderPlacedEvent;
+import com.example.mall.module.order.service.OrderOutboxHandler;
+import com.example.mall.module.product.dto.TopSellerDTO;
+import com.example.mall.module.product.entity.Product;
+import com.example.mall.module.product.entity.ProductSales;
+import com.example.mall.module.product.mapper.ProductMapper;
+import com.example.mall.module.product.mapper.ProductSalesMapper;
+import com.example.mall.module.product.service.CategoryService;
+import com.example.mall.module.product.service.ProductSalesService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 商品销量计数 (app.sales.enabled=true 时启用)
+ * 下单/支付事务提交后在内存中累加增量, 取消 (含超时取消) 后扣回下单数量, 定时批量合并写入 product_sales;
+ * 启用发件箱时下单事件由发件箱投递, 每个事件在一个事务中记录事件ID并直接累加销量, 重复投递只计一次.
+ * 每次写入后重建按分类的畅销榜快照, 查询只读取快照, 不访问数据库.
+ * 按分类查询时合并该分类子树中各分类的榜单.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.sales.enabled", havingValue = "true")
+public class ProductSalesCounter implements ProductSalesService, OrderOutboxHandler {
+
+    private static final int FLUSH_CHUNK_SIZE = 500;
+    private static final Comparator<ProductSales> BEST_SELLING = Comparator
+            .comparing(ProductSales::getPaidQuantity, Comparator.reverseOrder())
+            .thenComparing(ProductSales::getOrderedQuantity, Comparator.reverseOrder())
+            .thenComparing(ProductSales::getProductId);
+    private static final Comparator<TopSellerDTO> TOP_SELLER = Comparator
+            .comparing(TopSellerDTO::getPaidQuantity, Comparator.reverseOrder())
+            .thenComparing(TopSellerDTO::getOrderedQuantity, Comparator.reverseOrder())
+            .thenComparing(TopSellerDTO::getProductId);
+
+    @Autowired
+    private ProductSalesMapper productSalesMapper;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.sales.top-k:100}")
+    private int topK;
+
+    @Value("${app.sales.event-retention-days:7}")
+    private int eventRetentionDays;
+
+    private final ConcurrentHashMap<Long, AtomicLong> pendingOrdered = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, AtomicLong> pendingPaid = new ConcurrentHashMap<>();
+    // 已写入数据库的累计销量 (仅在持有 flushLock 时访问)
+    private final Map<Long, ProductSales> totals = new HashMap<>();
+    private final Object flushLock = new Object();
+    private volatile Ranking ranking = new Ranking(Collections.emptyList(), Collections.emptyMap());
+    // totals 有未反映到榜单的变化 (仅在持有 flushLock 时访问)
+    private boolean rankingStale;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        synchronized (flushLock) {
+            List<ProductSales> rows = productSalesMapper.selectList(null);
+            rows.forEach(row -> totals.put(row.getProductId(), row));
+            rebuildRanking();
+            log.info("【销量统计】从product_sales加载 {} 个商品的销量", rows.size());
+        }
+    }
+
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        for (Order order : event.getOrders()) {
+            order.getItems().forEach(item -> add(pendingOrdered, item.getProductId(), item.getQuantity()));
+        }
+    }
+
+    /**
+     * 启用发件箱时下单数量由发件箱投递: 事件ID写入 product_sales_event 与销量累加在同一事务中,
+     * 事件ID已存在说明处理过, 整个事件跳过; 失败时抛出异常由发件箱重试
+     */
+    @Override
+    public void onOrderCreated(Long eventId, OrderCreatedEventDTO event) {
+        if (event.getQuantities() == null || event.getQuantities().isEmpty()) {
+            return;
+        }
+        synchronized (flushLock) {
+            Map<Long, ProductSales> deltas = new HashMap<>();
+            event.getQuantities().forEach((productId, quantity) ->
+                    deltaOf(deltas, productId).setOrderedQuantity(quantity.longValue()));
+            resolveCategories(deltas);
+            List<ProductSales> rows = new ArrayList<>(deltas.values());
+            Boolean applied = new TransactionTemplate(transactionManager).execute(status -> {
+                if (productSalesMapper.insertEvent(eventId) == 0) {
+                    return false;
+                }
+                if (!rows.isEmpty()) {
+                    productSalesMapper.upsertBatch(rows);
+                }
+                return true;
+            });
+            if (!Boolean.TRUE.equals(applied)) {
+                log.info("【销量统计】事件'{}'已处理过, 跳过", eventId);
+                return;
+            }
+            rows.forEach(this::applyToTotals);
+            rankingStale = true;
+        }
+    }
+
+    @TransactionalEventListener
+    public void onOrderPaid(OrderPaidEvent event) {
+        event.getQuantities().forEach((productId, quantity) -> add(pendingPaid, productId, quantity));
+    }
+
+    /**
+     * 只有待付款订单可以取消, 扣回下单数量, 已支付数量不变
+     */
+    @TransactionalEventListener
+    public void onOrderCancelled(OrderCancelledEvent event) {
+        event.getQuantities().forEach((productId, quantity) -> add(pendingOrdered, productId, -quantity));
+    }
+
+    /**
+     * 畅销榜, categoryId 为空时为全站榜单; 最多返回 top-k 个.
+     * 各分类的榜单都保留了该分类的前 top-k 名, 子树的前 top-k 名一定在它们的并集中
+     */
+    @Override
+    public List<TopSellerDTO> top(Long categoryId, int limit) {
+        Ranking current = ranking;
+        if (categoryId == null) {
+            return current.overall.subList(0, Math.min(limit, current.overall.size()));
+        }
+        List<TopSellerDTO> merged = new ArrayList<>();
+        for (Long id : categoryService.getSubtreeIds(categoryId)) {
+            merged.addAll(current.byCategory.getOrDefault(id, Collections.emptyList()));
+        }
+        merged.sort(TOP_SELLER);
+        return merged.subList(0, Math.min(limit, merged.size()));
+    }
+
+    /**
+     * 将累积的销量增量批量写入数据库并刷新榜单
+     */
+    @Scheduled(fixedDelayString = "${app.sales.flush-interval-ms:5000}")
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Long, ProductSales> deltas = new HashMap<>();
+            pendingOrdered.forEach((productId, value) -> {
+                long delta = value.getAndSet(0);
+                if (delta != 0) {
+                    deltaOf(deltas, productId).setOrderedQuantity(delta);
+                }
+            });
+            pendingPaid.forEach((productId, value) -> {
+                long delta = value.getAndSet(0);
+                if (delta != 0) {
+                    deltaOf(deltas, productId).setPaidQuantity(delta);
+                }
+            });
+            if (deltas.isEmpty()) {
+                if (rankingStale) {
+                    rebuildRanking();
+                }
+                return;
+            }
+
+            resolveCategories(deltas);
+            List<ProductSales> rows = new ArrayList<>(deltas.values());
+            for (int from = 0; from < rows.size(); from += FLUSH_CHUNK_SIZE) {
+                List<ProductSales> chunk = rows.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, rows.size()));
+                try {
+                    productSalesMapper.upsertBatch(chunk);
+                    chunk.forEach(this::applyToTotals);
+                } catch (Exception e) {
+                    // 写入失败, 增量放回等待下一轮
+                    log.error("【销量统计】写入销量失败, 等待重试: {}", e.getMessage());
+                    chunk.forEach(row -> {
+                        add(pendingOrdered, row.getProductId(), row.getOrderedQuantity());
+                        add(pendingPaid, row.getProductId(), row.getPaidQuantity());
+                    });
+                }
+            }
+            rebuildRanking();
+            log.info("【销量统计】写入 {} 个商品的销量增量", rows.size());
+        }
+    }
+
+    /**
+     * 清理超过保留期的已处理事件ID, 保留期需长于发件箱的最长重试时间
+     */
+    @Scheduled(fixedDelayString = "${app.sales.event-cleanup-interval-ms:3600000}",
+            initialDelayString = "${app.sales.event-cleanup-interval-ms:3600000}")
+    public void purgeEvents() {
+        int deleted = productSalesMapper.deleteEventsBefore(LocalDateTime.now().minusDays(eventRetentionDays));
+        log.info("【销量统计】清理 {} 条已处理的下单事件记录", deleted);
+    }
+
+    /**
+     * 首次出现的商品补齐分类, 已删除的商品丢弃其增量
+     */
+    private void resolveCategories(Map<Long, ProductSales> deltas) {
+        List<Long> unknown = new ArrayList<>();
+        deltas.forEach((productId, row) -> {
+            ProductSales total = totals.get(productId);
+            if (total != null) {
+                row.setCategoryId(total.getCategoryId());
+            } else {
+                unknown.add(productId);
+            }
+        });
+        if (unknown.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> categories = new HashMap<>();
+        for (Product product : productMapper.selectBatchIds(unknown)) {
+            categories.put(product.getId(), product.getCategoryId());
+        }
+        for (Long productId : unknown) {
+            Long categoryId = categories.get(productId);
+            if (categoryId == null) {
+                deltas.remove(productId);
+            } else {
+                deltas.get(productId).setCategoryId(categoryId);
+            }
+        }
+    }
+
+    private void applyToTotals(ProductSales delta) {
+        ProductSales total = totals.computeIfAbsent(delta.getProductId(), id -> {
+            ProductSales row = new ProductSales();
+            row.setProductId(id);
+            row.setCategoryId(delta.getCategoryId());
+            row.setOrderedQuantity(0L);
+            row.setPaidQuantity(0L);
+            return row;
+        });
+        total.setOrderedQuantity(total.getOrderedQuantity() + delta.getOrderedQuantity());
+        total.setPaidQuantity(total.getPaidQuantity() + delta.getPaidQuantity());
+    }
+
+    /**
+     * 全量排序一次, 依次填充全站榜和各分类榜的前 topK 名, 以不可变快照整体替换
+     */
+    private void rebuildRanking() {
+        List<ProductSales> sorted = new ArrayList<>(totals.values());
+        sorted.sort(BEST_SELLING);
+        List<TopSellerDTO> overall = new ArrayList<>(Math.min(topK, sorted.size()));
+        Map<Long, List<TopSellerDTO>> byCategory = new HashMap<>();
+        for (ProductSales row : sorted) {
+            TopSellerDTO dto = new TopSellerDTO(row.getProductId(), row.getCategoryId(),
+                    row.getPaidQuantity(), row.getOrderedQuantity());
+            if (overall.size() < topK) {
+                overall.add(dto);
+            }
+            List<TopSellerDTO> categoryTop = byCategory.computeIfAbsent(row.getCategoryId(), id -> new ArrayList<>());
+            if (categoryTop.size() < topK) {
+                categoryTop.add(dto);
+            }
+        }
+        byCategory.replaceAll((categoryId, list) -> Collections.unmodifiableList(list));
+        ranking = new Ranking(Collections.unmodifiableList(overall), byCategory);
+        rankingStale = false;
+    }
+
+    private static ProductSales deltaOf(Map<Long, ProductSales> deltas, Long productId) {
+        return deltas.computeIfAbsent(productId, id -> {
+            ProductSales row = new ProductSales();
+            row.setProductId(id);
+            row.setOrderedQuantity(0L);
+            row.setPaidQuantity(0L);
+            return row;
+        });
+    }
+
+    private static void add(ConcurrentHashMap<Long, AtomicLong> counters, Long productId, long quantity) {
+        if (quantity != 0) {
+            counters.computeIfAbsent(productId, id -> new AtomicLong()).addAndGet(quantity);
+        }
+    }
+
+    private record Ranking(List<TopSellerDTO> overall, Map<Long, List<TopSellerDTO>> byCategory) {
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.mall.module.product.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.example.mall.common.util.CursorUtil;
+import com.example.mall.module.product.entity.Product;
+import com.example.mall.module.product.event.ProductChangedEvent;
+import com.example.mall.module.product.mapper.ProductMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品名称/描述的内存倒排索引 (app.search.enabled=true 时启用)
+ * 文本按字母数字片段切分, 每个片段索引单字和相邻两字 (bigram), 中文无需分词即可做子串匹配;
+ * 查询要求所有词项都命中, 按 TF-IDF 加权 (名称权重高于描述) 排序, 名称包含完整关键词时额外加分.
+ * 启动时全量构建, 之后随商品增删改事件增量更新.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.search.enabled", havingValue = "true")
+public class ProductSearchIndex {
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final float NAME_WEIGHT = 3f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final Comparator<Hit> BY_RANK = Comparator
+            .comparingDouble(Hit::score).reversed()
+            .thenComparing(Hit::productId, Comparator.reverseOrder());
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Value("${app.search.index-description:true}")
+    private boolean indexDescription;
+
+    // 词项 -> (商品ID -> 权重)
+    private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long lastId = 0;
+        List<Product> page;
+        do {
+            page = productMapper.selectList(new LambdaQueryWrapper<Product>()
+                    .select(Product::getId, Product::getCategoryId, Product::getName, Product::getDescription)
+                    .gt(Product::getId, lastId)
+                    .orderByAsc(Product::getId)
+                    .last("LIMIT " + LOAD_PAGE_SIZE));
+            page.forEach(this::index);
+            if (!page.isEmpty()) {
+                lastId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+        log.info("【搜索索引】构建完成, 商品{}个, 词项{}个", documents.size(), postings.size());
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        Map<Long, Product> products = new HashMap<>();
+        if (event.getType() != ProductChangedEvent.Type.DELETED) {
+            productMapper.selectBatchIds(event.getProductIds()).forEach(product -> products.put(product.getId(), product));
+        }
+        for (Long productId : event.getProductIds()) {
+            Product product = products.get(productId);
+            if (product == null) {
+                remove(productId);
+            } else {
+                index(product);
+            }
+        }
+    }
+
+    /**
+     * 建立或替换单个商品的索引
+     */
+    public void index(Product product) {
+        Map<String, Float> weights = new HashMap<>();
+        addTerms(weights, product.getName(), NAME_WEIGHT);
+        if (indexDescription) {
+            addTerms(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+        }
+        Document document = new Document(product.getCategoryId(), normalize(product.getName()), weights.keySet());
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            documents.put(product.getId(), document);
+            weights.forEach((term, weight) ->
+                    postings.computeIfAbsent(term, t -> new HashMap<>()).put(product.getId(), weight));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 搜索, 返回 after 之后的前 limit 个结果 (按相关度降序, 同分按ID降序)
+     * @param categoryIds 限定的分类ID集合 (含子孙分类), 为空表示不限
+     */
+    public List<Hit> search(String keyword, Set<Long> categoryIds, CursorUtil.ScorePosition after, int limit) {
+        String normalizedKeyword = normalize(keyword);
+        Set<String> terms = queryTerms(normalizedKeyword);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<Map<Long, Float>> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Map<Long, Float> list = postings.get(term);
+                if (list == null) {
+                    return List.of();
+                }
+                lists.add(list);
+            }
+            // 从最短的倒排表出发, 逐个检查是否命中其余词项
+            lists.sort(Comparator.comparingInt(Map::size));
+            double[] idf = new double[lists.size()];
+            double idfSum = 0;
+            for (int i = 0; i < lists.size(); i++) {
+                idf[i] = Math.log(1 + (double) documents.size() / lists.get(i).size());
+                idfSum += idf[i];
+            }
+            candidates:
+            for (Map.Entry<Long, Float> entry : lists.get(0).entrySet()) {
+                Long productId = entry.getKey();
+                Document document = documents.get(productId);
+                if (categoryIds != null && !categoryIds.contains(document.categoryId)) {
+                    continue;
+                }
+                double score = entry.getValue() * idf[0];
+                for (int i = 1; i < lists.size(); i++) {
+                    Float weight = lists.get(i).get(productId);
+                    if (weight == null) {
+                        continue candidates;
+                    }
+                    score += weight * idf[i];
+                }
+                if (document.normalizedName.contains(normalizedKeyword)) {
+                    score += NAME_WEIGHT * idfSum;
+                }
+                Hit hit = new Hit(productId, score);
+                if (after == null || BY_RANK.compare(hit, new Hit(after.id(), after.score())) > 0) {
+                    hits.add(hit);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort(BY_RANK);
+        return hits.size() > limit ? hits.subList(0, limit) : hits;
+    }
+
+    private void removeLocked(Long productId) {
+        Document old = documents.remove(productId);
+        if (old == null) {
+            return;
+        }
+        for (String term : old.terms) {
+            Map<Long, Float> list = postings.get(term);
+            if (list != null) {
+                list.remove(productId);
+                if (list.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void addTerms(Map<String, Float> weights, String text, float weight) {
+        String normalized = normalize(text);
+        for (String segment : segments(normalized)) {
+            for (int i = 0; i < segment.length(); i++) {
+                weights.merge(segment.substring(i, i + 1), weight, Float::sum);
+                if (i + 1 < segment.length()) {
+                    weights.merge(segment.substring(i, i + 2), weight, Float::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * 查询词项: 单字片段用单字, 其余片段用 bigram
+     */
+    private static Set<String> queryTerms(String normalizedKeyword) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String segment : segments(normalizedKeyword)) {
+            if (segment.length() == 1) {
+                terms.add(segment);
+                continue;
+            }
+            for (int i = 0; i + 1 < segment.length(); i++) {
+                terms.add(segment.substring(i, i + 2));
+            }
+        }
+        return terms;
+    }
+
+    private static List<String> segments(String normalized) {
+        List<String> segments = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                segments.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return segments;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    public record Hit(Long productId, double score) {
+    }
+
+    private record Document(Long categoryId, String normalizedName, Set<String> terms) {
+    }
+}
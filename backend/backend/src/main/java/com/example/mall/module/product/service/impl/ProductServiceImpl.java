@@ -3,32 +3,397 @@ package com.example.mall.module.product.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.mall.common.api.CursorPage;
+import com.example.mall.common.exception.CustomException;
+import com.example.mall.common.util.CursorUtil;
+import com.example.mall.module.product.dto.ProductBatchResultDTO;
+import com.example.mall.module.product.dto.CategoryNode;
+import com.example.mall.module.product.dto.ProductCatalog;
+import com.example.mall.module.product.dto.ProductFacetResultDTO;
+import com.example.mall.module.product.dto.ProductSnapshot;
 import com.example.mall.module.product.entity.Product;
+import com.example.mall.module.product.event.ProductChangedEvent;
 import com.example.mall.module.product.mapper.ProductMapper;
+import com.example.mall.module.product.service.CategoryService;
 import com.example.mall.module.product.service.ProductService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
 @Slf4j
 @Service
 public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> implements ProductService {
 
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StockView stockView;
+
+    @Autowired(required = false)
+    private InventoryLedger inventoryLedger; // 仅在 app.inventory.mode=ledger 时存在
+
+    @Autowired(required = false)
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired(required = false)
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.product-export.flush-rows:1000}")
+    private int exportFlushRows;
+
     @Override
-    public Page<Product> listProductsByPage(Page<Product> page, String name, Long categoryId) {
+    public Page<ProductSnapshot> listProductsByPage(Page<Product> page, String name, Long categoryId, boolean stockLevelOnly) {
         log.info("【业务处理】分页查询商品: page={}, name={}, categoryId={}", page.getCurrent(), name, categoryId);
 
         LambdaQueryWrapper<Product> queryWrapper = new LambdaQueryWrapper<>();
 
         // 按名称模糊查询
         queryWrapper.like(StringUtils.hasText(name), Product::getName, name);
-        // 按分类ID精确查询
-        queryWrapper.eq(categoryId != null, Product::getCategoryId, categoryId);
+        // 按分类查询, 包含所有子孙分类
+        Set<Long> categoryIds = categoryId == null ? null : categoryService.getSubtreeIds(categoryId);
+        queryWrapper.in(categoryIds != null, Product::getCategoryId, categoryIds);
         // 按创建时间倒序
         queryWrapper.orderByDesc(Product::getCreateTime);
 
         Page<Product> resultPage = this.page(page, queryWrapper);
         log.info("【数据查询】分页查询商品结果: 共{}条", resultPage.getTotal());
-        return resultPage;
+        Page<ProductSnapshot> snapshotPage = new Page<>(resultPage.getCurrent(), resultPage.getSize(), resultPage.getTotal());
+        snapshotPage.setRecords(withRowStock(resultPage.getRecords(), stockLevelOnly));
+        return snapshotPage;
+    }
+
+    @Override
+    public CursorPage<ProductSnapshot> listProductsByCursor(String cursor, int size, String name, Long categoryId,
+                                                            boolean withTotal, boolean stockLevelOnly) {
+        log.info("【业务处理】游标分页查询商品: cursor={}, size={}, name={}, categoryId={}", cursor, size, name, categoryId);
+        CursorUtil.Position position = CursorUtil.decode(cursor);
+        Set<Long> categoryIds = categoryId == null ? null : categoryService.getSubtreeIds(categoryId);
+
+        // 多查一条用于判断是否还有下一页
+        List<Product> records = productMapper.selectPageAfter(
+                position == null ? null : position.createTime(),
+                position == null ? null : position.id(),
+                name, categoryIds, size + 1);
+        boolean hasMore = records.size() > size;
+        if (hasMore) {
+            records = records.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            Product last = records.get(records.size() - 1);
+            nextCursor = CursorUtil.encode(last.getCreateTime(), last.getId());
+        }
+
+        Long total = null;
+        if (withTotal) {
+            LambdaQueryWrapper<Product> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.like(StringUtils.hasText(name), Product::getName, name);
+            queryWrapper.in(categoryIds != null, Product::getCategoryId, categoryIds);
+            total = this.count(queryWrapper);
+        }
+        log.info("【数据查询】游标分页查询商品结果: {}条, hasMore={}", records.size(), hasMore);
+        return new CursorPage<>(withRowStock(records, stockLevelOnly), nextCursor, hasMore, total);
+    }
+
+    @Override
+    public CursorPage<ProductSnapshot> searchProducts(String keyword, Long categoryId, String cursor, int size, boolean stockLevelOnly) {
+        log.info("【业务处理】搜索商品: keyword={}, categoryId={}, cursor={}, size={}", keyword, categoryId, cursor, size);
+        if (productSearchIndex == null) {
+            throw new CustomException("商品搜索未启用");
+        }
+        // 多取一条用于判断是否还有下一页
+        Set<Long> categoryIds = categoryId == null ? null : categoryService.getSubtreeIds(categoryId);
+        List<ProductSearchIndex.Hit> hits = productSearchIndex.search(keyword, categoryIds, CursorUtil.decodeScore(cursor), size + 1);
+        boolean hasMore = hits.size() > size;
+        if (hasMore) {
+            hits = hits.subList(0, size);
+        }
+        List<Long> ids = new ArrayList<>(hits.size());
+        hits.forEach(hit -> ids.add(hit.productId()));
+        Map<Long, ProductCatalog> catalogs = productCache.getAll(ids);
+        List<ProductCatalog> found = new ArrayList<>(hits.size());
+        ids.forEach(id -> {
+            ProductCatalog catalog = catalogs.get(id);
+            if (catalog != null) {
+                found.add(catalog);
+            }
+        });
+        List<ProductSnapshot> records = withStock(found, stockLevelOnly);
+        String nextCursor = null;
+        if (hasMore) {
+            ProductSearchIndex.Hit last = hits.get(hits.size() - 1);
+            nextCursor = CursorUtil.encodeScore(last.score(), last.productId());
+        }
+        log.info("【数据查询】搜索商品结果: {}条, hasMore={}", records.size(), hasMore);
+        return new CursorPage<>(records, nextCursor, hasMore, null);
+    }
+
+    @Override
+    public ProductFacetResultDTO facetProducts(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly,
+                                               long page, int size, boolean stockLevelOnly) {
+        log.info("【业务处理】分面筛选商品: categoryId={}, minPrice={}, maxPrice={}, inStockOnly={}, page={}, size={}",
+                categoryId, minPrice, maxPrice, inStockOnly, page, size);
+        if (productFacetIndex == null) {
+            throw new CustomException("商品分面筛选未启用");
+        }
+        Set<Long> categoryIds = categoryId == null ? null : categoryService.getSubtreeIds(categoryId);
+        List<CategoryNode> children = categoryService.getChildren(categoryId);
+        Map<Long, Collection<Long>> facetCategories = new LinkedHashMap<>();
+        children.forEach(child -> facetCategories.put(child.id(), categoryService.getSubtreeIds(child.id())));
+
+        ProductFacetIndex.Result result = productFacetIndex.query(categoryIds, minPrice, maxPrice, inStockOnly,
+                facetCategories, (page - 1) * size, size);
+
+        // 只有最终一页的商品需要加载, 目录信息大多来自缓存
+        Map<Long, ProductCatalog> catalogs = productCache.getAll(result.productIds());
+        List<ProductCatalog> found = new ArrayList<>(result.productIds().size());
+        result.productIds().forEach(id -> {
+            ProductCatalog catalog = catalogs.get(id);
+            if (catalog != null) {
+                found.add(catalog);
+            }
+        });
+        List<ProductFacetResultDTO.CategoryFacet> categoryFacets = new ArrayList<>(children.size());
+        children.forEach(child -> categoryFacets.add(new ProductFacetResultDTO.CategoryFacet(
+                child.id(), child.name(), result.categoryCounts().getOrDefault(child.id(), 0L))));
+        List<ProductFacetResultDTO.PriceRangeFacet> priceFacets = new ArrayList<>(result.priceCounts().size());
+        result.priceCounts().forEach(bucket -> priceFacets.add(
+                new ProductFacetResultDTO.PriceRangeFacet(bucket.min(), bucket.max(), bucket.count())));
+        log.info("【数据查询】分面筛选商品结果: 共{}条, 本页{}条", result.total(), found.size());
+        return new ProductFacetResultDTO(withStock(found, stockLevelOnly), result.total(), page, size,
+                categoryFacets, priceFacets, result.inStockCount(), result.outOfStockCount());
+    }
+
+    @Override
+    public ProductSnapshot getProductSnapshot(Long id, boolean stockLevelOnly) {
+        ProductCatalog catalog = productCache.get(id);
+        if (catalog == null) {
+            return null;
+        }
+        return getProductSnapshot(catalog, stockLevelOnly);
+    }
+
+    @Override
+    public ProductCatalog getProductCatalog(Long id) {
+        return productCache.get(id);
+    }
+
+    @Override
+    public ProductSnapshot getProductSnapshot(ProductCatalog catalog, boolean stockLevelOnly) {
+        return withStock(catalog, stockView.getStock(catalog.id()), stockLevelOnly);
+    }
+
+    @Override
+    public ProductBatchResultDTO getProductSnapshots(List<Long> ids, boolean stockLevelOnly) {
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        Map<Long, ProductCatalog> catalogs = productCache.getAll(distinct);
+        List<ProductCatalog> found = new ArrayList<>(catalogs.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : distinct) {
+            ProductCatalog catalog = catalogs.get(id);
+            if (catalog != null) {
+                found.add(catalog);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        List<ProductSnapshot> products = withStock(found, stockLevelOnly);
+        log.info("【数据查询】批量查询商品: 请求{}个, 找到{}个, 不存在{}个", distinct.size(), products.size(), missingIds.size());
+        return new ProductBatchResultDTO(products, missingIds);
+    }
+
+    @Override
+    public boolean createProduct(Product product) {
+        boolean success = this.save(product);
+        log.info("【数据写入】新增商品操作结果: {}, id={}", success, product.getId());
+        if (success) {
+            productChanged(product.getId(), ProductChangedEvent.Type.CREATED, categoryMove(null, product.getCategoryId()));
+        }
+        return success;
+    }
+
+    @Override
+    public boolean updateProduct(Product product) {
+        // 修改前的分类从目录缓存读取, 用于调整分类树的商品数
+        ProductCatalog before = product.getCategoryId() == null ? null : productCache.get(product.getId());
+        // 账本模式下库存写入账本, 由账本回写 products.stock, 不直接覆盖数据库
+        Integer stock = inventoryLedger == null ? null : product.getStock();
+        if (stock != null) {
+            product.setStock(null);
+            product.setUpdateTime(LocalDateTime.now());
+        }
+        boolean success = this.updateById(product);
+        log.info("【数据写入】更新商品'{}'操作结果: {}", product.getId(), success);
+        if (success && stock != null) {
+            inventoryLedger.overwrite(Map.of(product.getId(), stock));
+        }
+        Map<Long, Integer> categoryDeltas = success && before != null
+                ? categoryMove(before.categoryId(), product.getCategoryId())
+                : Map.of();
+        productChanged(product.getId(), ProductChangedEvent.Type.UPDATED, categoryDeltas);
+        return success;
+    }
+
+    @Override
+    public boolean deleteProduct(Long id) {
+        ProductCatalog before = productCache.get(id);
+        boolean success = this.removeById(id);
+        log.info("【数据写入】删除商品'{}'操作结果: {}", id, success);
+        Map<Long, Integer> categoryDeltas = success && before != null
+                ? categoryMove(before.categoryId(), null)
+                : Map.of();
+        productChanged(id, ProductChangedEvent.Type.DELETED, categoryDeltas);
+        return success;
+    }
+
+    @Override
+    public long exportProducts(LocalDateTime updatedSince, OutputStream out) throws IOException {
+        log.info("【业务处理】流式导出商品: updatedSince={}", updatedSince);
+        // 逐个对象序列化时不立即刷出, 每 flush-rows 行刷一次
+        ObjectWriter writer = objectMapper.writerFor(Product.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        long startNanos = System.nanoTime();
+        Long count;
+        try {
+            // 游标依赖的数据库连接在事务结束时才归还
+            count = transactionTemplate.execute(status -> {
+                long written = 0;
+                try (Cursor<Product> cursor = productMapper.selectForExport(updatedSince);
+                     JsonGenerator generator = objectMapper.getFactory().createGenerator(new BufferedOutputStream(out, 64 * 1024))) {
+                    // 换行由下面显式写出, 不使用默认的空格分隔符
+                    generator.setRootValueSeparator(null);
+                    for (Product product : cursor) {
+                        writer.writeValue(generator, product);
+                        generator.writeRaw('\n');
+                        if (++written % exportFlushRows == 0) {
+                            generator.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return written;
+            });
+        } catch (UncheckedIOException e) {
+            log.warn("【业务处理】商品导出中断: {}", e.getCause().getMessage());
+            throw e.getCause();
+        }
+        log.info("【数据查询】流式导出商品完成: {}条, 耗时{}ms", count, (System.nanoTime() - startNanos) / 1_000_000);
+        return count;
+    }
+
+    @Override
+    public Map<String, Object> getCacheStats() {
+        CacheStats stats = productCache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", productCache.size());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("loadFailureCount", stats.loadFailureCount());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("averageLoadPenaltyMs", stats.averageLoadPenalty() / 1_000_000);
+        return result;
+    }
+
+    /**
+     * 刚从 products 表读出的整行: db 模式直接使用行中的库存, 不再单独查询库存
+     */
+    private List<ProductSnapshot> withRowStock(List<Product> products, boolean stockLevelOnly) {
+        Map<Long, Integer> stocks = stockView.stocksOf(products);
+        List<ProductSnapshot> snapshots = new ArrayList<>(products.size());
+        products.forEach(product -> snapshots.add(
+                withStock(ProductCatalog.from(product), stocks.get(product.getId()), stockLevelOnly)));
+        return snapshots;
+    }
+
+    /**
+     * 在目录信息上合并库存视图中的库存, 一次批量读取; 库存视图中已不存在的商品按无库存处理
+     */
+    private List<ProductSnapshot> withStock(List<ProductCatalog> catalogs, boolean stockLevelOnly) {
+        if (catalogs.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>(catalogs.size());
+        catalogs.forEach(catalog -> ids.add(catalog.id()));
+        Map<Long, Integer> stocks = stockView.getStocks(ids);
+        List<ProductSnapshot> snapshots = new ArrayList<>(catalogs.size());
+        catalogs.forEach(catalog -> snapshots.add(withStock(catalog, stocks.get(catalog.id()), stockLevelOnly)));
+        return snapshots;
+    }
+
+    private ProductSnapshot withStock(ProductCatalog catalog, Integer stock, boolean stockLevelOnly) {
+        int available = stock == null ? 0 : stock;
+        return ProductSnapshot.of(catalog, stockLevelOnly ? null : available, stockView.level(available));
+    }
+
+    /**
+     * 写库后立即失效缓存, 再通知其他依赖商品数据的组件
+     */
+    private void productChanged(Long id, ProductChangedEvent.Type type, Map<Long, Integer> categoryDeltas) {
+        productCache.invalidate(id);
+        eventPublisher.publishEvent(new ProductChangedEvent(id, type, categoryDeltas));
+    }
+
+    /**
+     * 一个商品从 from 分类移到 to 分类 (新增时 from 为空, 删除时 to 为空) 引起的分类商品数变化
+     */
+    private static Map<Long, Integer> categoryMove(Long from, Long to) {
+        if (Objects.equals(from, to)) {
+            return Map.of();
+        }
+        Map<Long, Integer> deltas = new HashMap<>(4);
+        if (from != null) {
+            deltas.put(from, -1);
+        }
+        if (to != null) {
+            deltas.put(to, 1);
+        }
+        return deltas;
     }
-}
\ No newline at end of file
+}
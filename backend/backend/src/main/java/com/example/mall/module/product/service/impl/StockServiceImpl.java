@@ -0,0 +1,213 @@
+package com.example.mall.module.product.service.impl;
+
+import com.example.mall.common.exception.CustomException;
+import com.example.mall.common.exception.StockShortageException;
+import com.example.mall.module.product.dto.StockDeductionDTO;
+import com.example.mall.module.product.dto.StockShortageDTO;
+import com.example.mall.module.product.entity.Product;
+import com.example.mall.module.product.mapper.ProductMapper;
+import com.example.mall.module.product.service.StockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+@Slf4j
+@Service
+public class StockServiceImpl implements StockService {
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private StockView stockView;
+
+    // 仅在 app.inventory.mode=ledger 时存在
+    @Autowired(required = false)
+    private InventoryLedger inventoryLedger;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, Product> deductStock(Map<Long, Integer> quantities) {
+        // 按商品ID排序, 保证加锁顺序固定
+        TreeMap<Long, Integer> sorted = new TreeMap<>(quantities);
+        log.info("【业务处理】批量扣减库存: {}", sorted);
+        if (inventoryLedger != null) {
+            return reserveFromLedger(sorted);
+        }
+
+        // 1. 一次查询锁定全部商品行并取得快照
+        List<Product> locked = productMapper.selectBatchForUpdate(sorted.keySet());
+        Map<Long, Product> snapshots = new HashMap<>(locked.size() * 2);
+        locked.forEach(p -> snapshots.put(p.getId(), p));
+
+        // 2. 行锁已持有, 在内存中找出所有库存不足的商品
+        List<StockShortageDTO> shortages = new ArrayList<>();
+        List<StockDeductionDTO> deductions = new ArrayList<>(sorted.size());
+        sorted.forEach((productId, quantity) -> {
+            Product product = snapshots.get(productId);
+            if (product == null) {
+                shortages.add(new StockShortageDTO(productId, "#" + productId, quantity, 0));
+            } else if (product.getStock() < quantity) {
+                shortages.add(new StockShortageDTO(productId, product.getName(), quantity, product.getStock()));
+            }
+            deductions.add(new StockDeductionDTO(productId, quantity));
+        });
+        if (!shortages.isEmpty()) {
+            log.error("【库存校验失败】库存不足的商品: {}", shortages);
+            throw new StockShortageException(shortages);
+        }
+
+        // 3. 一条语句扣减全部库存
+        int affectedRows = productMapper.decreaseStockBatch(deductions);
+        if (affectedRows != deductions.size()) {
+            // 行锁保护下不应出现, 出现说明有绕过锁的写入
+            log.error("【数据写入】批量扣减库存行数不符: 期望{}, 实际{}", deductions.size(), affectedRows);
+            throw new CustomException("库存扣减失败，请重试");
+        }
+        log.info("【数据写入】批量扣减库存成功, 共{}个商品", affectedRows);
+        Map<Long, Integer> before = new HashMap<>(snapshots.size() * 2);
+        snapshots.forEach((productId, product) -> before.put(productId, product.getStock()));
+        stockView.changedAfterCommit(negate(sorted), before);
+        return snapshots;
+    }
+
+    @Override
+    public void revertDeduction(Map<Long, Integer> quantities) {
+        if (inventoryLedger == null || !TransactionSynchronizationManager.hasResource(inventoryLedger)) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Map<Long, Integer>> reservations =
+                (List<Map<Long, Integer>>) TransactionSynchronizationManager.getResource(inventoryLedger);
+        if (reservations.remove(quantities)) {
+            inventoryLedger.cancel(quantities);
+            stockView.changed(quantities, null);
+            log.info("【库存账本】撤销预占库存: {}", quantities);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void restoreStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        if (inventoryLedger != null) {
+            // 账本模式: 事务提交后归还到账本, 由账本回写数据库
+            Map<Long, Integer> restored = new TreeMap<>(quantities);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    inventoryLedger.release(restored);
+                    stockView.changed(restored, null);
+                    log.info("【库存账本】归还库存: {}", restored);
+                }
+            });
+            return;
+        }
+        int affectedRows = productMapper.adjustStockBatch(new TreeMap<>(quantities));
+        log.info("【数据写入】批量归还库存, 共{}个商品", affectedRows);
+        stockView.changedAfterCommit(new HashMap<>(quantities), null);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockProducts(Collection<Long> productIds) {
+        if (inventoryLedger != null || productIds.isEmpty()) {
+            return;
+        }
+        List<Product> locked = productMapper.selectBatchForUpdate(new TreeSet<>(productIds));
+        log.info("【数据查询】预先锁定 {} 个商品行", locked.size());
+    }
+
+    @Override
+    public Integer getAvailableStock(Long productId) {
+        if (productCache.get(productId) == null) {
+            return null;
+        }
+        return stockView.getStock(productId);
+    }
+
+    @Override
+    public Map<Long, Integer> getAvailableStocks(Collection<Long> productIds) {
+        Set<Long> existing = productCache.getAll(productIds).keySet();
+        return stockView.getStocks(existing);
+    }
+
+    /**
+     * 账本模式: 在内存中预占库存, 不触碰 products 行锁, 事务未提交则归还
+     */
+    private Map<Long, Product> reserveFromLedger(TreeMap<Long, Integer> sorted) {
+        Map<Long, Product> snapshots = new HashMap<>(sorted.size() * 2);
+        productCache.getAll(sorted.keySet()).forEach((id, catalog) -> snapshots.put(id, catalog.toProduct()));
+
+        Map<Long, Integer> shortages = inventoryLedger.reserve(sorted);
+        if (!shortages.isEmpty()) {
+            List<StockShortageDTO> details = new ArrayList<>(shortages.size());
+            shortages.forEach((productId, available) -> {
+                Product product = snapshots.get(productId);
+                String name = product == null ? "#" + productId : product.getName();
+                details.add(new StockShortageDTO(productId, name, sorted.get(productId), available));
+            });
+            log.error("【库存校验失败】库存不足的商品: {}", details);
+            throw new StockShortageException(details);
+        }
+
+        currentReservations().add(sorted);
+        stockView.changed(negate(sorted), null);
+        log.info("【库存账本】预占库存成功, 共{}个商品", sorted.size());
+        return snapshots;
+    }
+
+    /**
+     * 当前事务内尚未撤销的预占记录, 事务提交后转为待回写的扣减, 未提交时统一归还
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<Long, Integer>> currentReservations() {
+        List<Map<Long, Integer>> reservations =
+                (List<Map<Long, Integer>>) TransactionSynchronizationManager.getResource(inventoryLedger);
+        if (reservations != null) {
+            return reservations;
+        }
+        List<Map<Long, Integer>> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(inventoryLedger, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(inventoryLedger);
+                if (status == STATUS_COMMITTED) {
+                    created.forEach(inventoryLedger::commit);
+                } else {
+                    created.forEach(quantities -> {
+                        inventoryLedger.cancel(quantities);
+                        stockView.changed(quantities, null);
+                    });
+                    log.info("【库存账本】事务未提交, 归还预占库存: {}", created);
+                }
+            }
+        });
+        return created;
+    }
+
+    private static Map<Long, Integer> negate(Map<Long, Integer> quantities) {
+        Map<Long, Integer> deltas = new HashMap<>(quantities.size() * 2);
+        quantities.forEach((productId, quantity) -> deltas.put(productId, -quantity));
+        return deltas;
+    }
+}
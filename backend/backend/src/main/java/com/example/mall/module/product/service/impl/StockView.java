@@ -0,0 +1,205 @@
+package com.example.mall.module.product.service.impl;
+
+import com.example.mall.module.product.dto.StockLevel;
+import com.example.mall.module.product.entity.Product;
+import com.example.mall.module.product.event.ProductChangedEvent;
+import com.example.mall.module.product.event.ProductStockChangedEvent;
+import com.example.mall.module.product.mapper.ProductMapper;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 库存视图: 与商品目录分开的库存读取入口, 商品接口在响应时把库存合并到目录快照上
+ * ledger 模式直接读内存账本; db 模式按商品ID短时缓存 products.stock (app.stock-view.ttl-ms), 本进程扣减/归还后立即失效.
+ * 另维护两个版本号供 HTTP 缓存使用: 库存每次变化递增 stockVersion, 只有商品的库存档位变化时才递增 levelVersion;
+ * 商品在有货/无货之间切换时发布 ProductStockChangedEvent.
+ */
+@Slf4j
+@Component
+public class StockView {
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    // 仅在 app.inventory.mode=ledger 时存在
+    @Autowired(required = false)
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.stock-view.ttl-ms:1000}")
+    private long ttlMs;
+
+    @Value("${app.stock-view.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${app.stock-view.low-threshold:10}")
+    private int lowThreshold;
+
+    private LoadingCache<Long, Integer> cache;
+
+    private final AtomicLong stockVersion = new AtomicLong();
+    private final AtomicLong levelVersion = new AtomicLong();
+    private volatile long stockModified = System.currentTimeMillis();
+    private volatile long levelModified = System.currentTimeMillis();
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Integer load(Long id) {
+                        Product product = productMapper.selectById(id);
+                        return product == null ? null : product.getStock();
+                    }
+
+                    @Override
+                    public Map<Long, Integer> loadAll(Set<? extends Long> ids) {
+                        Map<Long, Integer> loaded = new HashMap<>(ids.size() * 2);
+                        productMapper.selectStockBatch(ids).forEach(p -> loaded.put(p.getId(), p.getStock()));
+                        return loaded;
+                    }
+                });
+    }
+
+    /**
+     * 商品当前可用库存, 商品不存在时返回 null
+     */
+    public Integer getStock(Long productId) {
+        if (inventoryLedger != null) {
+            return inventoryLedger.getAvailable(productId);
+        }
+        return cache.get(productId);
+    }
+
+    /**
+     * 批量查询可用库存, 返回结果中只包含存在的商品; db 模式下未命中的商品一条 IN 查询加载
+     */
+    public Map<Long, Integer> getStocks(Collection<Long> productIds) {
+        if (inventoryLedger == null) {
+            return cache.getAll(productIds);
+        }
+        Map<Long, Integer> stocks = new HashMap<>(productIds.size() * 2);
+        for (Long productId : productIds) {
+            Integer stock = inventoryLedger.getAvailable(productId);
+            if (stock != null) {
+                stocks.put(productId, stock);
+            }
+        }
+        return stocks;
+    }
+
+    /**
+     * 刚从 products 表读出的商品行的可用库存: db 模式直接使用行中的 stock, 不再查询; ledger 模式读账本
+     */
+    public Map<Long, Integer> stocksOf(List<Product> products) {
+        if (inventoryLedger != null) {
+            List<Long> productIds = new ArrayList<>(products.size());
+            products.forEach(product -> productIds.add(product.getId()));
+            return getStocks(productIds);
+        }
+        Map<Long, Integer> stocks = new HashMap<>(products.size() * 2);
+        products.forEach(product -> stocks.put(product.getId(), product.getStock()));
+        return stocks;
+    }
+
+    public StockLevel level(int stock) {
+        return StockLevel.of(stock, lowThreshold);
+    }
+
+    /**
+     * 库存已变化 (账本模式下预占/归还后立即调用)
+     * @param deltas 商品ID -> 库存增量 (扣减为负数)
+     * @param before 商品ID -> 变化前的库存, 为 null 时从账本推算, 无法推算时按档位已变化处理
+     */
+    public void changed(Map<Long, Integer> deltas, Map<Long, Integer> before) {
+        boolean levelChanged = false;
+        Set<Long> availabilityChanged = new HashSet<>();
+        for (Map.Entry<Long, Integer> entry : deltas.entrySet()) {
+            Long productId = entry.getKey();
+            Integer previous = before != null ? before.get(productId) : null;
+            if (previous == null && inventoryLedger != null) {
+                Integer current = inventoryLedger.getAvailable(productId);
+                previous = current == null ? null : current - entry.getValue();
+            }
+            if (inventoryLedger == null) {
+                cache.invalidate(productId);
+            }
+            levelChanged = levelChanged || previous == null
+                    || level(previous) != level(previous + entry.getValue());
+            if (previous == null || (previous > 0) != (previous + entry.getValue() > 0)) {
+                availabilityChanged.add(productId);
+            }
+        }
+        long now = System.currentTimeMillis();
+        stockModified = now;
+        stockVersion.incrementAndGet();
+        if (levelChanged) {
+            levelModified = now;
+            levelVersion.incrementAndGet();
+        }
+        if (!availabilityChanged.isEmpty()) {
+            eventPublisher.publishEvent(new ProductStockChangedEvent(availabilityChanged));
+        }
+    }
+
+    /**
+     * 当前有事务时在提交后再调用 changed, 保证拿到新版本号的请求一定能读到已提交的库存
+     */
+    public void changedAfterCommit(Map<Long, Integer> deltas, Map<Long, Integer> before) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            changed(deltas, before);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changed(deltas, before);
+            }
+        });
+    }
+
+    /**
+     * 后台编辑/导入商品可能直接修改库存
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        Map<Long, Integer> deltas = new HashMap<>(event.getProductIds().size() * 2);
+        event.getProductIds().forEach(productId -> deltas.put(productId, 0));
+        changed(deltas, null);
+    }
+
+    /**
+     * @param levelOnly true 返回档位版本号, 否则返回精确库存版本号
+     */
+    public long version(boolean levelOnly) {
+        return levelOnly ? levelVersion.get() : stockVersion.get();
+    }
+
+    public long lastModified(boolean levelOnly) {
+        return levelOnly ? levelModified : stockModified;
+    }
+}
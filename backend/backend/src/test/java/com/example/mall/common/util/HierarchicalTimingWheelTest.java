@@ -0,0 +1,98 @@
+package com.example.mall.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 4;
+    private static final long START_MS = 1_000_000;
+
+    /**
+     * 超出第0层范围 (40ms) 的任务经上层逐级下放, 到期时间不晚于截止时间, 最多提前一个 tickMs
+     */
+    @Test
+    void cascadesFromOverflowLevels() {
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, START_MS);
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // 覆盖 0~3 层
+            long deadline = START_MS + TICK_MS + random.nextInt(5000);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+        assertEquals(deadlines.size(), wheel.size());
+
+        Map<Long, Integer> fired = new HashMap<>();
+        for (long now = START_MS; now <= START_MS + 6000; now++) {
+            long current = now;
+            wheel.advanceTo(now, deadline -> {
+                fired.merge(deadline, 1, Integer::sum);
+                assertTrue(current <= deadline, "到期晚于截止时间: deadline=" + deadline + ", now=" + current);
+                assertTrue(current > deadline - TICK_MS, "提前超过一个tick: deadline=" + deadline + ", now=" + current);
+            });
+        }
+
+        Map<Long, Integer> expected = new HashMap<>();
+        deadlines.forEach(deadline -> expected.merge(deadline, 1, Integer::sum));
+        assertEquals(expected, fired);
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * 单个远期任务: 在截止时间所在的 tick 之前不到期
+     */
+    @Test
+    void firesFarDeadlineWithinOneTick() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, START_MS);
+        long deadline = START_MS + 1234;
+        wheel.schedule("far", deadline);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(deadline - TICK_MS, fired::add);
+        assertTrue(fired.isEmpty());
+        assertEquals(1, wheel.size());
+
+        wheel.advanceTo(deadline, fired::add);
+        assertEquals(List.of("far"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * 已过截止时间 (或不足一个 tick) 的任务在下一次 advanceTo 时立即到期, 无需推进时钟
+     */
+    @Test
+    void expiresPastDeadlinesOnNextAdvance() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, START_MS + 3);
+        wheel.schedule("past", START_MS - 100);
+        wheel.schedule("now", START_MS + 3);
+        wheel.schedule("later", START_MS + 100);
+        assertEquals(3, wheel.size());
+
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(START_MS + 3, fired::add);
+        assertEquals(List.of("past", "now"), fired);
+        assertEquals(1, wheel.size());
+
+        // 时钟已推进后再添加过期任务
+        wheel.advanceTo(START_MS + 50, fired::add);
+        wheel.schedule("late", START_MS + 20);
+        wheel.advanceTo(START_MS + 50, fired::add);
+        assertEquals(List.of("past", "now", "late"), fired);
+        assertEquals(1, wheel.size());
+
+        wheel.advanceTo(START_MS + 100, fired::add);
+        assertEquals(List.of("past", "now", "late", "later"), fired);
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.mall.common.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 认证拦截器每个请求解析 Token 的开销: 旧实现 (每次重建密钥和解析器) 对比
+ * 单例解析器 (缓存未命中的冷路径) 和已校验 Token 缓存 (热路径)
+ * 运行 main 时自动附带 GC 分析器, 对比 gc.alloc.rate.norm
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET = "aVeryStrongAndLongSecretKeyForThisSimpleMallProject";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expirationMs", 86400000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaximumSize", 100000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxTtlSeconds", 600L);
+        jwtUtil.init();
+        token = jwtUtil.generateToken(10001L, "benchmark-user");
+        jwtUtil.getUserIdFromToken(token);
+    }
+
+    /**
+     * 旧实现: 每次请求重新生成密钥、构建解析器并完整校验
+     */
+    @Benchmark
+    public Long legacyRebuildParser() {
+        Claims claims = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+        return claims.get("userId", Long.class);
+    }
+
+    /**
+     * 冷路径: 单例解析器完整校验 (缓存未命中时的开销)
+     */
+    @Benchmark
+    public Long coldSingletonParser() {
+        return jwtUtil.getClaimsFromToken(token).get("userId", Long.class);
+    }
+
+    /**
+     * 热路径: 摘要后命中已校验缓存
+     */
+    @Benchmark
+    public Long warmVerifiedCache() {
+        return jwtUtil.getUserIdFromToken(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtUtilBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.mall.module.order.entity;
+
+import com.baomidou.mybatisplus.extension.handlers.JacksonTypeHandler;
+import com.example.mall.module.user.entity.Address;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一页 100 个订单映射为 Order 的开销: 旧实现 (JacksonTypeHandler 逐行解析 receiver_info) 对比
+ * 延迟解析 (只包装原始 JSON) 和列表投影 (不查询该列, 只映射其余列)
+ * 每种方式都模拟驱动把列字节解码为 String 再转换为字段的开销; 运行 main 时自动附带 GC 分析器, 对比 gc.alloc.rate.norm
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiverInfoBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final DateTimeFormatter DATETIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // 每行除 receiver_info 以外的列 (列表投影查询的全部列), 按 COLUMNS 的顺序
+    private static final int ID = 0, ORDER_NO = 1, USER_ID = 2, TOTAL_AMOUNT = 3, STATUS = 4, CREATE_TIME = 5, UPDATE_TIME = 6;
+    private static final int COLUMNS = 7;
+
+    private byte[][][] columns;
+    private byte[][] rows;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        columns = new byte[PAGE_SIZE][][];
+        rows = new byte[PAGE_SIZE][];
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            String[] values = new String[COLUMNS];
+            values[ID] = String.valueOf(100000L + i);
+            values[ORDER_NO] = "2024010112000000" + String.format("%04d", i);
+            values[USER_ID] = String.valueOf(1000L + i);
+            values[TOTAL_AMOUNT] = "199.90";
+            values[STATUS] = String.valueOf(i % 4);
+            values[CREATE_TIME] = "2024-01-01 12:00:00";
+            values[UPDATE_TIME] = "2024-01-01 12:30:00";
+            columns[i] = new byte[COLUMNS][];
+            for (int c = 0; c < COLUMNS; c++) {
+                columns[i][c] = values[c].getBytes(StandardCharsets.UTF_8);
+            }
+
+            Address address = new Address();
+            address.setId((long) i);
+            address.setUserId(1000L + i);
+            address.setReceiverName("收货人" + i);
+            address.setReceiverPhone("1380000" + String.format("%04d", i));
+            address.setProvince("广东省");
+            address.setCity("广州市");
+            address.setDistrict("天河区");
+            address.setDetail("体育西路" + i + "号");
+            address.setIsDefault(i % 2 == 0);
+            address.setCreateTime(LocalDateTime.of(2024, 1, 1, 12, 0));
+            address.setUpdateTime(LocalDateTime.of(2024, 1, 1, 12, 0));
+            rows[i] = JacksonTypeHandler.getObjectMapper().writeValueAsString(address).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 旧实现: 每行都完整解析为 Address
+     */
+    @Benchmark
+    public void eagerJacksonTypeHandler(Blackhole blackhole) throws JsonProcessingException {
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Order order = mapColumns(columns[i]);
+            String json = new String(rows[i], StandardCharsets.UTF_8);
+            order.setReceiverInfo(ReceiverInfo.of(JacksonTypeHandler.getObjectMapper().readValue(json, Address.class)));
+            blackhole.consume(order);
+        }
+    }
+
+    /**
+     * 读取了列但从不访问 (列表页在投影前的情况)
+     */
+    @Benchmark
+    public void lazyUnread(Blackhole blackhole) {
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Order order = mapColumns(columns[i]);
+            order.setReceiverInfo(ReceiverInfo.fromJson(new String(rows[i], StandardCharsets.UTF_8)));
+            blackhole.consume(order);
+        }
+    }
+
+    /**
+     * 详情页: 延迟包装后访问, 使用共享 ObjectReader 解析
+     */
+    @Benchmark
+    public void lazyDecoded(Blackhole blackhole) {
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Order order = mapColumns(columns[i]);
+            order.setReceiverInfo(ReceiverInfo.fromJson(new String(rows[i], StandardCharsets.UTF_8)));
+            blackhole.consume(order.getReceiverInfo().get());
+            blackhole.consume(order);
+        }
+    }
+
+    /**
+     * 列表投影: 不查询 receiver_info 列, 只映射其余列
+     */
+    @Benchmark
+    public void projected(Blackhole blackhole) {
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            blackhole.consume(mapColumns(columns[i]));
+        }
+    }
+
+    /**
+     * 按列表投影的列映射一行, 与 receiver_info 无关的部分各方式相同
+     */
+    private static Order mapColumns(byte[][] row) {
+        Order order = new Order();
+        order.setId(Long.valueOf(text(row[ID])));
+        order.setOrderNo(text(row[ORDER_NO]));
+        order.setUserId(Long.valueOf(text(row[USER_ID])));
+        order.setTotalAmount(new BigDecimal(text(row[TOTAL_AMOUNT])));
+        order.setStatus(Integer.valueOf(text(row[STATUS])));
+        order.setCreateTime(LocalDateTime.parse(text(row[CREATE_TIME]), DATETIME));
+        order.setUpdateTime(LocalDateTime.parse(text(row[UPDATE_TIME]), DATETIME));
+        return order;
+    }
+
+    private static String text(byte[] column) {
+        return new String(column, StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReceiverInfoBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.mall.module.order.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeOrderNoGeneratorTest {
+
+    /**
+     * 多线程并发生成大量订单号, 校验全局无重复且每个线程内单调递增
+     */
+    @Test
+    void concurrentIdsAreUnique() throws Exception {
+        int threads = 8;
+        int perThread = 200_000;
+        SnowflakeOrderNoGenerator generator = new SnowflakeOrderNoGenerator(7);
+        long[][] ids = new long[threads][perThread];
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            long[] mine = ids[t];
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < perThread; i++) {
+                    mine[i] = generator.nextId();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS), "生成超时");
+
+        long[] all = new long[threads * perThread];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 1; i < perThread; i++) {
+                assertTrue(ids[t][i] > ids[t][i - 1], "单线程内订单号必须递增");
+            }
+            System.arraycopy(ids[t], 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertTrue(all[i] != all[i - 1], "出现重复订单号: " + all[i]);
+        }
+    }
+
+    /**
+     * 时钟回拨时继续沿用逻辑时钟, 订单号保持递增
+     */
+    @Test
+    void clockGoingBackwardsStaysMonotonic() {
+        AtomicLong now = new AtomicLong(SnowflakeOrderNoGenerator.EPOCH + 10_000);
+        SnowflakeOrderNoGenerator generator = new SnowflakeOrderNoGenerator(1, now::get);
+        long before = generator.nextId();
+        now.addAndGet(-5_000);
+        long after = generator.nextId();
+        assertTrue(after > before);
+    }
+
+    /**
+     * 同一毫秒序列号用尽后借用下一毫秒
+     */
+    @Test
+    void sequenceOverflowBorrowsNextMillisecond() {
+        long fixed = SnowflakeOrderNoGenerator.EPOCH + 42;
+        SnowflakeOrderNoGenerator generator = new SnowflakeOrderNoGenerator(3, () -> fixed);
+        long previous = generator.nextId();
+        for (int i = 0; i < SnowflakeOrderNoGenerator.SEQUENCE_MASK + 10; i++) {
+            long next = generator.nextId();
+            assertTrue(next > previous);
+            previous = next;
+        }
+        long timestamp = previous >>> (SnowflakeOrderNoGenerator.WORKER_ID_BITS + SnowflakeOrderNoGenerator.SEQUENCE_BITS);
+        assertEquals(43, timestamp);
+        assertEquals(3, (previous >>> SnowflakeOrderNoGenerator.SEQUENCE_BITS) & SnowflakeOrderNoGenerator.MAX_WORKER_ID);
+    }
+
+    @Test
+    void rejectsInvalidWorkerId() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeOrderNoGenerator(1024));
+    }
+}
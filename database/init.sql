@@ -59,7 +59,9 @@ CREATE TABLE `products` (
                             `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
                             PRIMARY KEY (`id`),
                             KEY `idx_category_id` (`category_id`),
-                            KEY `idx_name` (`name`)
+                            KEY `idx_name` (`name`),
+                            KEY `idx_create_time_id` (`create_time`, `id`),
+                            KEY `idx_update_time` (`update_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='商品表';
 
 -- 5. 购物车表 (实现M:N关系: AddsToCart)
@@ -91,7 +93,8 @@ CREATE TABLE `orders` (
                           `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
                           PRIMARY KEY (`id`),
                           UNIQUE KEY `uk_order_no` (`order_no`),
-                          KEY `idx_user_id` (`user_id`)
+                          KEY `idx_user_id` (`user_id`),
+                          KEY `idx_status_update_time` (`status`, `update_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单表';
 
 -- 7. 订单明细表 (实现M:N关系: Contains)
@@ -109,6 +112,53 @@ CREATE TABLE `order_items` (
                                PRIMARY KEY (`id`),
                                KEY `idx_order_id` (`order_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单明细表';
+
+-- 8. 订单事件发件箱 (与订单在同一事务中写入, 由后台任务异步投递)
+DROP TABLE IF EXISTS `order_outbox`;
+CREATE TABLE `order_outbox` (
+                                `id` bigint NOT NULL AUTO_INCREMENT COMMENT '事件ID',
+                                `event_type` varchar(50) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '事件类型',
+                                `aggregate_id` bigint NOT NULL COMMENT '订单ID',
+                                `payload` json NOT NULL COMMENT '事件内容(JSON)',
+                                `status` int NOT NULL DEFAULT '0' COMMENT '状态(0:待投递, 1:投递中, 2:已完成, 3:失败)',
+                                `attempts` int NOT NULL DEFAULT '0' COMMENT '已尝试次数',
+                                `next_attempt_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次投递时间',
+                                `claim_token` varchar(32) COLLATE utf8mb4_unicode_ci DEFAULT NULL COMMENT '认领批次标识',
+                                `last_error` varchar(500) COLLATE utf8mb4_unicode_ci DEFAULT NULL COMMENT '最近一次失败原因',
+                                `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+                                `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+                                PRIMARY KEY (`id`),
+                                KEY `idx_status_next_attempt` (`status`, `next_attempt_time`),
+                                KEY `idx_claim_token` (`claim_token`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单事件发件箱';
+
+-- 9. 订单归档表 (已完成/已取消的历史订单, 结构与热表一致)
+DROP TABLE IF EXISTS `orders_archive`;
+CREATE TABLE `orders_archive` LIKE `orders`;
+
+DROP TABLE IF EXISTS `order_items_archive`;
+CREATE TABLE `order_items_archive` LIKE `order_items`;
+
+-- 10. 商品销量统计表 (由应用定时批量累加)
+DROP TABLE IF EXISTS `product_sales`;
+CREATE TABLE `product_sales` (
+                                 `product_id` bigint NOT NULL COMMENT '商品ID',
+                                 `category_id` bigint NOT NULL COMMENT '分类ID',
+                                 `ordered_quantity` bigint NOT NULL DEFAULT '0' COMMENT '累计下单数量',
+                                 `paid_quantity` bigint NOT NULL DEFAULT '0' COMMENT '累计支付数量',
+                                 `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+                                 PRIMARY KEY (`product_id`),
+                                 KEY `idx_category_paid` (`category_id`, `paid_quantity`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='商品销量统计表';
+
+DROP TABLE IF EXISTS `product_sales_event`;
+CREATE TABLE `product_sales_event` (
+                                       `event_id` bigint NOT NULL COMMENT '发件箱事件ID(order_outbox.id)',
+                                       `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '处理时间',
+                                       PRIMARY KEY (`event_id`),
+                                       KEY `idx_create_time` (`create_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='已计入销量的下单事件';
+
 SET NAMES 'utf8mb4';
 USE `simple_mall`;
 